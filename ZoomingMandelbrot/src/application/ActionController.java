@@ -1,9 +1,10 @@
 package application;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.function.Consumer;
 
 import javafx.application.Platform;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -11,8 +12,10 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Menu;
 import javafx.scene.control.MenuItem;
-import javafx.scene.image.Image;
+import javafx.scene.control.RadioMenuItem;
+import javafx.scene.control.ToggleGroup;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.web.WebView;
@@ -32,6 +35,10 @@ public class ActionController {
     private CheckMenuItem reverseZoom;
     @FXML
     private MenuItem reset;
+    @FXML
+    private Menu coloring;
+    @FXML
+    private Menu rendering;
 
     private FileChooser fileChooser = new FileChooser();
     private Scene helpScene;
@@ -48,7 +55,31 @@ public class ActionController {
         model.reverseZoomActionProperty().bindBidirectional(
                 reverseZoom.selectedProperty());
 
-        reset.disableProperty().bind(model.zoomingInProgressProperty());
+        setUpModeMenu(coloring, ColoringMode.values(), model.getColoringMode(), model::setColoringMode);
+        setUpModeMenu(rendering, RenderMode.values(), model.getRenderMode(), model::setRenderMode);
+    }
+
+    /**
+     * Fill a menu with a radio item for each of the values of an enum, named after the
+     * value, which passes the value to <code>setter</code> when selected.
+     */
+    private <T extends Enum<T>> void setUpModeMenu(Menu menu, T[] modes, T selected, Consumer<T> setter) {
+        ToggleGroup group = new ToggleGroup();
+        for (T mode : modes) {
+            String name = mode.name().charAt(0) + mode.name().substring(1).toLowerCase().replace('_', ' ');
+            RadioMenuItem item = new RadioMenuItem(name);
+            item.setToggleGroup(group);
+            item.setUserData(mode);
+            item.setSelected(mode == selected);
+            menu.getItems().add(item);
+        }
+        group.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> {
+            if (newToggle != null) {
+                @SuppressWarnings("unchecked")
+                T mode = (T) newToggle.getUserData();
+                setter.accept(mode);
+            }
+        });
     }
 
     @FXML
@@ -63,7 +94,7 @@ public class ActionController {
 
     void saveMandelbrotImage(Scene scene) {
         if (model.getCurrentMandelbrot() != null) {
-            saveImage(model.getCurrentMandelbrot().getImage(),
+            saveImage(model.getCurrentMandelbrot().toBufferedImage(),
                     scene.getWindow(), "Save Mandelbrot Image");
         }
     }
@@ -75,12 +106,12 @@ public class ActionController {
 
     void saveJuliaSetImage(Scene scene) {
         if (model.getCurrentJuliaSet() != null) {
-            saveImage(model.getCurrentJuliaSet().getImage(), scene.getWindow(),
+            saveImage(model.getCurrentJuliaSet().toBufferedImage(), scene.getWindow(),
                     "Save Julia Set Image");
         }
     }
 
-    private void saveImage(Image image, Window window, String title) {
+    private void saveImage(BufferedImage image, Window window, String title) {
         
         fileChooser.getExtensionFilters().add(
                 new ExtensionFilter("Portable Network Graphics", "*.png"));
@@ -91,7 +122,7 @@ public class ActionController {
             try {
                 String fileName = file.toString();
                 String format = fileName.substring(fileName.lastIndexOf('.') + 1);
-                ImageIO.write(SwingFXUtils.fromFXImage(image, null), format, file);
+                ImageIO.write(image, format, file);
             } catch (Exception e) {
                 model.errorOccurred("An error occurred saving the image", e);
             }
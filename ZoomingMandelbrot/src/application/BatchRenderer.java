@@ -0,0 +1,302 @@
+package application;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Command line renderer for batches of images, which does not need JavaFX or a display.
+ * <p>
+ * Usage: <code>java -Djava.awt.headless=true application.BatchRenderer jobs.txt</code>
+ * <p>
+ * The job file has one job per line, with blank lines and anything following a
+ * <code>#</code> ignored. Each job is given by whitespace-separated fields:
+ * <pre>
+ * mandelbrot centerX centerY width imageWidth imageHeight iterations output.png
+ * julia      centerX centerY width imageWidth imageHeight iterations output.png cx cy
+ * </pre>
+ * The center and width are in the complex plane; the height of the region is chosen so
+ * that pixels are square. Mandelbrot centers are read to arbitrary precision, and the
+ * kernel is chosen for the depth of the zoom as it is in the explorer. Julia jobs take
+ * the parameter <i>c</i> = <code>cx + i cy</code>. Relative output paths are resolved
+ * against the directory of the job file. PNG images of more than 16 megapixels are
+ * computed in bands and streamed to the file by a {@link StreamingRenderer}, so images of
+ * any size can be rendered in bounded memory.
+ * <p>
+ * Every job shares a single pool with a worker for each core, in which the tiles of an
+ * image are computed. A few jobs are run at once, so that cores which would be idle
+ * while one image finishes its last tiles, or is encoded and written, are used by the
+ * next. The number of concurrent jobs may be set with the system property
+ * <code>mandelbrot.batch.jobs</code>, the coloring with
+ * <code>mandelbrot.coloringMode</code>, and antialiasing (see
+ * {@link FractalView#setAntialiasing(boolean)}), which is off unless
+ * <code>mandelbrot.antialiasing</code> is <code>true</code>.
+ */
+public class BatchRenderer {
+
+    private static final int PARALLELIZATION_LEVEL = Runtime.getRuntime().availableProcessors() ;
+
+    private static final int DEFAULT_CONCURRENT_JOBS = 2 ;
+
+    // Larger PNG images are computed and written in bands by a StreamingRenderer
+    private static final long STREAMING_THRESHOLD_PIXELS = 16L << 20 ;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: java application.BatchRenderer <job file>");
+            System.exit(2);
+        }
+
+        final Path jobFile = Paths.get(args[0]);
+        final List<Job> jobs ;
+        try {
+            jobs = readJobs(jobFile);
+        } catch (IllegalArgumentException exc) {
+            System.err.println(exc.getMessage());
+            System.exit(2);
+            return ;
+        }
+
+        final int concurrentJobs = Integer.getInteger("mandelbrot.batch.jobs", DEFAULT_CONCURRENT_JOBS);
+        final ColoringMode coloringMode = ColoringMode.valueOf(
+                System.getProperty("mandelbrot.coloringMode", ColoringMode.BANDED.name()));
+        final boolean antialiasing = Boolean.getBoolean("mandelbrot.antialiasing");
+
+        final BatchRenderer renderer = new BatchRenderer(coloringMode, antialiasing, Math.max(1, concurrentJobs));
+        final ForkJoinPool computePool = new ForkJoinPool(PARALLELIZATION_LEVEL);
+        final ExecutorService jobExecutor = Executors.newFixedThreadPool(Math.max(1, concurrentJobs));
+
+        final long start = System.nanoTime();
+        final List<Future<Long>> results = new ArrayList<>();
+        for (Job job : jobs) {
+            results.add(jobExecutor.submit(() -> renderer.render(job, computePool)));
+        }
+
+        int failures = 0 ;
+        long pixels = 0 ;
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                pixels += results.get(i).get();
+            } catch (ExecutionException exc) {
+                failures++ ;
+                System.err.printf("Job at line %d (%s) failed: %s%n",
+                        jobs.get(i).line, jobs.get(i).output, exc.getCause());
+            }
+        }
+        jobExecutor.shutdown();
+        computePool.shutdown();
+
+        final double seconds = (System.nanoTime() - start) / 1e9 ;
+        System.out.printf("Rendered %d of %d images (%.1f megapixels) in %.2f s: %.2f images/s, %.2f megapixels/s%n",
+                jobs.size() - failures, jobs.size(), pixels / 1e6, seconds,
+                (jobs.size() - failures) / seconds, pixels / 1e6 / seconds);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private final ColoringMode coloringMode ;
+    private final boolean antialiasing ;
+    private final FrameBufferPool bufferPool ;
+
+    /**
+     * @param concurrentJobs The number of jobs which will be rendered at once, so that the
+     * buffers of each finished image can be kept for the next image of the same size
+     */
+    public BatchRenderer(ColoringMode coloringMode, boolean antialiasing, int concurrentJobs) {
+        this.coloringMode = coloringMode ;
+        this.antialiasing = antialiasing ;
+        this.bufferPool = new FrameBufferPool(concurrentJobs);
+    }
+
+    /**
+     * Compute the image for a job and write it to its output file.
+     * @return The number of pixels rendered
+     */
+    long render(Job job, ForkJoinPool computePool) throws IOException {
+        if (job.isStreamed()) {
+            return renderStreamed(job, computePool);
+        }
+        final long start = System.nanoTime();
+
+        final FractalView view = job.createView();
+        view.setRenderMode(RenderMode.STANDARD);
+        view.setColoringMode(coloringMode);
+        view.setAntialiasing(antialiasing);
+        view.setBufferPool(bufferPool);
+        view.compute(computePool, PARALLELIZATION_LEVEL);
+        final long computed = System.nanoTime();
+
+        final File output = job.output.toFile();
+        final String fileName = output.getName();
+        final String format = fileName.substring(fileName.lastIndexOf('.') + 1);
+        if (output.getParentFile() != null) {
+            Files.createDirectories(output.getParentFile().toPath());
+        }
+        try {
+            if (! ImageIO.write(view.toBufferedImage(), format, output)) {
+                throw new IOException("No writer for format " + format);
+            }
+        } finally {
+            view.dispose();
+        }
+        final long written = System.nanoTime();
+
+        System.out.printf("%s: %dx%d, %s, compute %.1f ms, write %.1f ms%n", job.output,
+                view.getWidth(), view.getHeight(), view.getClass().getSimpleName(),
+                (computed - start) / 1e6, (written - computed) / 1e6);
+        return (long) view.getWidth() * view.getHeight();
+    }
+
+    /**
+     * Compute and write the image for a job in bands, without holding the whole image.
+     * @return The number of pixels rendered
+     */
+    private long renderStreamed(Job job, ForkJoinPool computePool) throws IOException {
+        final long start = System.nanoTime();
+
+        // edges are found within each band, so pixels on an edge which only crosses
+        // between bands are not antialiased
+        final StreamingRenderer renderer = new StreamingRenderer(job.imageWidth, job.imageHeight, (y, rows) -> {
+            FractalView band = job.createBand(y, rows);
+            band.setAntialiasing(antialiasing);
+            return band ;
+        });
+        renderer.setColoringMode(coloringMode);
+        if (job.output.getParent() != null) {
+            Files.createDirectories(job.output.getParent());
+        }
+        renderer.render(new BufferedOutputStream(Files.newOutputStream(job.output)),
+                computePool, PARALLELIZATION_LEVEL);
+
+        System.out.printf("%s: %dx%d in %d bands of %d rows, compute %.1f ms, write %.1f ms, total %.1f ms%n",
+                job.output, job.imageWidth, job.imageHeight, renderer.getBandCount(), renderer.getBandRows(),
+                renderer.getComputeNanos() / 1e6, renderer.getEncodeNanos() / 1e6,
+                (System.nanoTime() - start) / 1e6);
+        return (long) job.imageWidth * job.imageHeight;
+    }
+
+    /**
+     * Read the jobs from a job file.
+     * @throws IllegalArgumentException if a line of the file is not a valid job
+     */
+    static List<Job> readJobs(Path jobFile) throws IOException {
+        final Path directory = jobFile.toAbsolutePath().getParent();
+        final List<String> lines = Files.readAllLines(jobFile);
+        final List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (! line.isEmpty()) {
+                try {
+                    jobs.add(Job.parse(i + 1, line.split("\\s+"), directory));
+                } catch (RuntimeException exc) {
+                    throw new IllegalArgumentException(String.format("%s, line %d: %s",
+                            jobFile, i + 1, exc.getMessage()), exc);
+                }
+            }
+        }
+        return jobs ;
+    }
+
+    static final class Job {
+        final int line ;
+        final boolean julia ;
+        final BigDecimal centerX ;
+        final BigDecimal centerY ;
+        final double width ;
+        final int imageWidth ;
+        final int imageHeight ;
+        final int maxIterations ;
+        final Path output ;
+        final double cx ;
+        final double cy ;
+
+        private Job(int line, boolean julia, BigDecimal centerX, BigDecimal centerY, double width,
+                int imageWidth, int imageHeight, int maxIterations, Path output, double cx, double cy) {
+            this.line = line ;
+            this.julia = julia ;
+            this.centerX = centerX ;
+            this.centerY = centerY ;
+            this.width = width ;
+            this.imageWidth = imageWidth ;
+            this.imageHeight = imageHeight ;
+            this.maxIterations = maxIterations ;
+            this.output = output ;
+            this.cx = cx ;
+            this.cy = cy ;
+        }
+
+        static Job parse(int line, String[] fields, Path directory) {
+            final boolean julia ;
+            if ("mandelbrot".equalsIgnoreCase(fields[0])) {
+                julia = false ;
+            } else if ("julia".equalsIgnoreCase(fields[0])) {
+                julia = true ;
+            } else {
+                throw new IllegalArgumentException("Unknown fractal type " + fields[0]);
+            }
+            final int expectedFields = julia ? 10 : 8 ;
+            if (fields.length != expectedFields) {
+                throw new IllegalArgumentException(String.format("Expected %d fields for %s, found %d",
+                        expectedFields, fields[0], fields.length));
+            }
+
+            final Job job = new Job(line, julia,
+                    new BigDecimal(fields[1]), new BigDecimal(fields[2]), Double.parseDouble(fields[3]),
+                    Integer.parseInt(fields[4]), Integer.parseInt(fields[5]), Integer.parseInt(fields[6]),
+                    directory.resolve(fields[7]),
+                    julia ? Double.parseDouble(fields[8]) : 0,
+                    julia ? Double.parseDouble(fields[9]) : 0);
+            if (! (job.width > 0) || job.imageWidth <= 0 || job.imageHeight <= 0 || job.maxIterations <= 0) {
+                throw new IllegalArgumentException("Width, image size and iterations must be positive");
+            }
+            return job ;
+        }
+
+        FractalView createView() {
+            return createBand(0, imageHeight);
+        }
+
+        /**
+         * Create a view of the given rows of the image. Rows are numbered from the top, and
+         * the center of the band is offset from that of the image by a whole number of
+         * pixels, so that bands join without seams.
+         */
+        FractalView createBand(int y, int rows) {
+            final double pixelSize = width / imageWidth ;
+            final double offset = (imageHeight / 2.0 - y - rows / 2.0) * pixelSize ;
+            final double bandHeight = rows * pixelSize ;
+            if (julia) {
+                final PlaneBounds bounds = new PlaneBounds(centerX.doubleValue() - width / 2,
+                        centerY.doubleValue() + offset - bandHeight / 2, width, bandHeight);
+                return new LaneJuliaSetView(imageWidth, rows, bounds, maxIterations, cx, cy);
+            } else {
+                return MandelbrotView.create(imageWidth, rows, centerX, centerY.add(new BigDecimal(offset)),
+                        width, bandHeight, maxIterations, true);
+            }
+        }
+
+        boolean isStreamed() {
+            return (long) imageWidth * imageHeight > STREAMING_THRESHOLD_PIXELS
+                    && output.getFileName().toString().toLowerCase().endsWith(".png");
+        }
+    }
+}
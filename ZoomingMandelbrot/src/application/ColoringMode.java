@@ -0,0 +1,27 @@
+package application;
+
+/**
+ * Strategies for mapping iteration counts to palette colors.
+ */
+public enum ColoringMode {
+
+    /**
+     * Each iteration count is given the next color of the palette, cycling through the
+     * palette as the count increases.
+     */
+    BANDED,
+
+    /**
+     * Iteration counts are mapped through the cumulative distribution of the counts in the
+     * view, so that each color of the palette covers roughly the same number of pixels,
+     * whatever the iteration level.
+     */
+    HISTOGRAM,
+
+    /**
+     * The iteration count is made continuous using the modulus of the final point of the
+     * orbit (the normalized iteration count), and colors are interpolated between
+     * neighbouring palette entries, so there are no visible bands.
+     */
+    SMOOTH
+}
@@ -41,8 +41,6 @@ public class ControlPanelController {
 
     public void initialize() {
 
-        root.disableProperty().bind(model.zoomingInProgressProperty());
-
         setUpSizeLabelBinding();
         setUpFrameCount();
         setupIterationControl();
@@ -57,15 +55,22 @@ public class ControlPanelController {
 
     private void setUpSizeLabelBinding() {
         model.currentMandelbrotProperty().addListener(
-                (obs, oldMandelbrot, newMandelbrot) -> 
-                    sizeLabel.setText(String.format("Size: %.2g", newMandelbrot.getBounds().getWidth())));
+                (obs, oldMandelbrot, newMandelbrot) -> {
+                    String text = String.format("Size: %.2g", newMandelbrot.getBounds().getWidth());
+                    if (newMandelbrot instanceof PerturbationMandelbrotView) {
+                        int skipped = ((PerturbationMandelbrotView) newMandelbrot).getSkippedIterations();
+                        text = text + String.format(" (skipped %d iterations per pixel)", skipped);
+                    }
+                    sizeLabel.setText(text);
+                });
     }
 
     private void setUpFrameCount() {
 
         Timeline fpsMeter = new Timeline(new KeyFrame(Duration.seconds(0.2),
                 e -> {
-                    fpsLabel.setText("Frames per second: "+ model.getFrameCount() * 5);
+                    fpsLabel.setText(String.format("Frames per second: %d (tile cache hits: %.0f%%)",
+                            model.getFrameCount() * 5, 100 * model.getTileCache().getHitRatio()));
                     model.setFrameCount(0);
                 }));
 
@@ -0,0 +1,50 @@
+package application;
+
+/**
+ * Error-free transformations used to implement double-double arithmetic, in which a
+ * value is represented as the unevaluated sum of two doubles <code>hi + lo</code>
+ * with <code>|lo| &lt;= ulp(hi) / 2</code>, giving roughly 106 bits of mantissa.
+ * <p>
+ * Kernels keep the hi and lo parts in local variables and use these methods to
+ * recover the rounding error of each floating point operation, so no objects are
+ * allocated in the iteration loop.
+ */
+final class DoubleDouble {
+
+    // 2^27 + 1, used to split a double into two non-overlapping 26-bit halves
+    private static final double SPLITTER = 134217729.0 ;
+
+    private DoubleDouble() {}
+
+    /**
+     * @return The rounding error of <code>s = a + b</code>, so that
+     * <code>a + b == s + twoSumError(a, b, s)</code> exactly.
+     */
+    static double twoSumError(double a, double b, double s) {
+        double bb = s - a ;
+        return (a - (s - bb)) + (b - bb);
+    }
+
+    /**
+     * @return The rounding error of <code>p = a * b</code>, so that
+     * <code>a * b == p + twoProdError(a, b, p)</code> exactly. Uses Dekker's
+     * splitting, as the code base targets Java 8 and so has no fused multiply-add.
+     */
+    static double twoProdError(double a, double b, double p) {
+        double t = SPLITTER * a ;
+        double aHi = t - (t - a);
+        double aLo = a - aHi ;
+        t = SPLITTER * b ;
+        double bHi = t - (t - b);
+        double bLo = b - bHi ;
+        return ((aHi * bHi - p) + aHi * bLo + aLo * bHi) + aLo * bLo ;
+    }
+
+    /**
+     * @return The low part of the normalized sum of <code>hi</code> and <code>lo</code>,
+     * whose high part is <code>hi + lo</code>. Requires <code>|hi| &gt;= |lo|</code>.
+     */
+    static double renormalizeLow(double hi, double lo, double sum) {
+        return lo - (sum - hi);
+    }
+}
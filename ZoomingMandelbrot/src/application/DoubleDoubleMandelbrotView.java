@@ -0,0 +1,113 @@
+package application;
+
+import java.math.BigDecimal;
+
+import static application.DoubleDouble.renormalizeLow;
+import static application.DoubleDouble.twoProdError;
+import static application.DoubleDouble.twoSumError;
+
+/**
+ * MandelbrotView which iterates in double-double arithmetic (around 106 bits of
+ * mantissa). This covers the range of zoom levels where the pixel spacing is too
+ * small to be resolved by doubles at the center of the view, but the cost of
+ * computing a high precision reference orbit for the perturbation kernel is not
+ * yet warranted. Expect it to be four to eight times slower than the double
+ * precision kernel.
+ */
+public class DoubleDoubleMandelbrotView extends MandelbrotView {
+
+    private final double centerXHi ;
+    private final double centerXLo ;
+    private final double centerYHi ;
+    private final double centerYLo ;
+
+    // The high parts of neighboring pixels may be the same double, so the cardioid and
+    // bulb test is made for the view as a whole:
+    private final boolean pixelCardioidTest ;
+    private final boolean viewInCardioidOrBulb ;
+
+    public DoubleDoubleMandelbrotView(int width, int height, BigDecimal centerX, BigDecimal centerY,
+            double viewWidth, double viewHeight, int maxIterations) {
+        super(width, height, centerX, centerY, viewWidth, viewHeight, maxIterations);
+        this.centerXHi = centerX.doubleValue();
+        this.centerXLo = centerX.subtract(new BigDecimal(centerXHi)).doubleValue();
+        this.centerYHi = centerY.doubleValue();
+        this.centerYLo = centerY.subtract(new BigDecimal(centerYHi)).doubleValue();
+        this.pixelCardioidTest = canTestPixelsForCardioidOrBulb();
+        this.viewInCardioidOrBulb = ! pixelCardioidTest && isViewInMainCardioidOrBulb();
+    }
+
+    @Override
+    protected int computeIterationCount(double px, double py, float[] moduli, int index) {
+        final int maxIterations = getIterationLevel();
+        final double offsetX = (px - getWidth() / 2.0) * getBounds().getWidth() / getWidth() ;
+        final double offsetY = (getHeight() / 2.0 - py) * getBounds().getHeight() / getHeight() ;
+
+        // c = center + offset:
+        double s = centerXHi + offsetX ;
+        double e = twoSumError(centerXHi, offsetX, s) + centerXLo ;
+        final double cxHi = s + e ;
+        final double cxLo = renormalizeLow(s, e, cxHi);
+        s = centerYHi + offsetY ;
+        e = twoSumError(centerYHi, offsetY, s) + centerYLo ;
+        final double cyHi = s + e ;
+        final double cyLo = renormalizeLow(s, e, cyHi);
+
+        if (viewInCardioidOrBulb || pixelCardioidTest && isInMainCardioidOrBulb(cxHi, cyHi)) {
+            return maxIterations ;
+        }
+
+        // as in the other kernels, a point which escapes before the first iteration counts 0
+        if (cxHi * cxHi + cyHi * cyHi >= 4) {
+            moduli[index] = extendedModulus(cxHi, cyHi, cxHi, cyHi, ESCAPE_EXTENSION) ;
+            return 0 ;
+        }
+
+        double xHi = cxHi, xLo = cxLo ;
+        double yHi = cyHi, yLo = cyLo ;
+
+        int iterations = 0 ;
+        while (iterations < maxIterations) {
+
+            // x^2, y^2 and x*y:
+            double p = xHi * xHi ;
+            e = twoProdError(xHi, xHi, p) + 2 * xHi * xLo ;
+            double x2Hi = p + e ;
+            double x2Lo = renormalizeLow(p, e, x2Hi);
+
+            p = yHi * yHi ;
+            e = twoProdError(yHi, yHi, p) + 2 * yHi * yLo ;
+            double y2Hi = p + e ;
+            double y2Lo = renormalizeLow(p, e, y2Hi);
+
+            iterations++ ;
+            if (x2Hi + y2Hi >= 4) {
+                moduli[index] = extendedModulus(xHi, yHi, cxHi, cyHi, ESCAPE_EXTENSION) ;
+                break ;
+            }
+
+            p = xHi * yHi ;
+            e = twoProdError(xHi, yHi, p) + xHi * yLo + xLo * yHi ;
+            double xyHi = p + e ;
+            double xyLo = renormalizeLow(p, e, xyHi);
+
+            // y = 2xy + cy:
+            s = 2 * xyHi + cyHi ;
+            e = twoSumError(2 * xyHi, cyHi, s) + 2 * xyLo + cyLo ;
+            yHi = s + e ;
+            yLo = renormalizeLow(s, e, yHi);
+
+            // x = x^2 - y^2 + cx:
+            s = x2Hi - y2Hi ;
+            e = twoSumError(x2Hi, -y2Hi, s) + x2Lo - y2Lo ;
+            double dHi = s + e ;
+            double dLo = renormalizeLow(s, e, dHi);
+            s = dHi + cxHi ;
+            e = twoSumError(dHi, cxHi, s) + dLo + cxLo ;
+            xHi = s + e ;
+            xLo = renormalizeLow(s, e, xHi);
+        }
+
+        return iterations ;
+    }
+}
@@ -0,0 +1,41 @@
+package application;
+
+/**
+ * Fast approximation of base 2 logarithms of floats, for use where many values must be
+ * converted and an absolute error of a few millionths is acceptable.
+ * <p>
+ * The exponent is read directly from the bits of the float, and the logarithm of the
+ * mantissa is interpolated linearly from a table indexed by its leading bits.
+ */
+final class FastLog {
+
+    private static final int TABLE_BITS = 10 ;
+    private static final int MANTISSA_BITS = 23 ;
+    private static final int SHIFT = MANTISSA_BITS - TABLE_BITS ;
+
+    // log2 of 1 + i / 2^TABLE_BITS, with one extra entry for interpolation at the top
+    private static final float[] TABLE = createTable();
+
+    private FastLog() {}
+
+    private static float[] createTable() {
+        float[] table = new float[(1 << TABLE_BITS) + 1];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (float) (Math.log(1 + (double) i / (1 << TABLE_BITS)) / Math.log(2));
+        }
+        return table ;
+    }
+
+    /**
+     * @return An approximation of the base 2 logarithm of <code>x</code>, which must be
+     * positive, finite and normal.
+     */
+    static float log2(float x) {
+        final int bits = Float.floatToRawIntBits(x);
+        final int exponent = ((bits >>> MANTISSA_BITS) & 0xff) - 127 ;
+        final int mantissa = bits & ((1 << MANTISSA_BITS) - 1);
+        final int index = mantissa >>> SHIFT ;
+        final float fraction = (mantissa & ((1 << SHIFT) - 1)) * (1.0f / (1 << SHIFT));
+        return exponent + TABLE[index] + fraction * (TABLE[index + 1] - TABLE[index]);
+    }
+}
@@ -0,0 +1,295 @@
+package application;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks of the kernels and of whole-frame computation, on a fixed set of scenes, so
+ * that the effect of a change can be measured and regressions spotted. Like the
+ * {@link BatchRenderer}, this runs without JavaFX.
+ * <p>
+ * Usage:
+ * <pre>
+ * java application.FractalBenchmark &gt; results.jsonl
+ * java application.FractalBenchmark compare baseline.jsonl results.jsonl
+ * </pre>
+ * Two kinds of benchmark are run for each scene:
+ * <ul>
+ * <li><b>kernel</b>: each kernel which can render the scene computes the whole image on a
+ * single thread, in the standard render mode. The score is the throughput in millions of
+ * iterations per second, counting the final iteration count of every pixel.</li>
+ * <li><b>frame</b>: the kernel the explorer would choose computes the whole image in each
+ * render mode with 1, 2, 4, ... up to the number of cores worker threads. The score is
+ * the median latency of a frame, in milliseconds.</li>
+ * </ul>
+ * Each benchmark is run a number of times to warm up the JIT compiler, then measured a
+ * number of times; these may be set with the system properties
+ * <code>mandelbrot.benchmark.warmup</code> (default 3) and
+ * <code>mandelbrot.benchmark.samples</code> (default 10). The scenes may be restricted
+ * with <code>mandelbrot.benchmark.scenes</code>, a comma-separated list of names.
+ * <p>
+ * Results are written to standard output as JSON, one object per line, each with a stable
+ * <code>id</code>; progress is written to standard error. The <code>compare</code> command
+ * matches results by id and reports the change in each score, flagging changes for the
+ * worse of more than a threshold (default 5%, set with
+ * <code>mandelbrot.benchmark.threshold</code>); it exits with status 1 if there are any.
+ */
+public class FractalBenchmark {
+
+    private static final int SIZE = 400 ;
+
+    private static final class Scene {
+        final String name ;
+        final BigDecimal centerX ;
+        final BigDecimal centerY ;
+        final double width ;
+        final int maxIterations ;
+        // the parameter c for a Julia set, or null for the Mandelbrot set
+        final double[] julia ;
+
+        Scene(String name, String centerX, String centerY, double width, int maxIterations, double... julia) {
+            this.name = name ;
+            this.centerX = new BigDecimal(centerX);
+            this.centerY = new BigDecimal(centerY);
+            this.width = width ;
+            this.maxIterations = maxIterations ;
+            this.julia = julia.length == 0 ? null : julia ;
+        }
+
+        PlaneBounds bounds() {
+            return new PlaneBounds(centerX.doubleValue() - width / 2, centerY.doubleValue() - width / 2,
+                    width, width);
+        }
+
+        /**
+         * @return The kernels which can render this scene, by name
+         */
+        Map<String, Supplier<FractalView>> kernels() {
+            Map<String, Supplier<FractalView>> kernels = new LinkedHashMap<>();
+            if (julia != null) {
+                kernels.put("JuliaSetView",
+                        () -> new JuliaSetView(SIZE, SIZE, bounds(), maxIterations, julia[0], julia[1]));
+                kernels.put("LaneJuliaSetView",
+                        () -> new LaneJuliaSetView(SIZE, SIZE, bounds(), maxIterations, julia[0], julia[1]));
+                return kernels ;
+            }
+            FractalView chosen = explorerKernel().get();
+            if (chosen.getClass() == LaneMandelbrotView.class) {
+                kernels.put("MandelbrotView",
+                        () -> new MandelbrotView(SIZE, SIZE, centerX, centerY, width, width, maxIterations));
+                kernels.put("LaneMandelbrotView",
+                        () -> new LaneMandelbrotView(SIZE, SIZE, centerX, centerY, width, width, maxIterations));
+            }
+            if (chosen.getClass() != PerturbationMandelbrotView.class) {
+                kernels.put("DoubleDoubleMandelbrotView",
+                        () -> new DoubleDoubleMandelbrotView(SIZE, SIZE, centerX, centerY, width, width, maxIterations));
+            }
+            kernels.put("PerturbationMandelbrotView",
+                    () -> new PerturbationMandelbrotView(SIZE, SIZE, centerX, centerY, width, width, maxIterations));
+            return kernels ;
+        }
+
+        Supplier<FractalView> explorerKernel() {
+            if (julia != null) {
+                return () -> new LaneJuliaSetView(SIZE, SIZE, bounds(), maxIterations, julia[0], julia[1]);
+            }
+            return () -> MandelbrotView.create(SIZE, SIZE, centerX, centerY, width, width, maxIterations, true);
+        }
+    }
+
+    private static final List<Scene> SCENES = Arrays.asList(
+            new Scene("full", "-0.5", "0", 3, 1000),
+            new Scene("seahorse", "-0.7436438870", "0.1318259042", 1e-6, 3000),
+            new Scene("minibrot", "-1.7687788", "-0.0017389", 1e-3, 3000),
+            // around the Misiurewicz point c = i, at double-double and at perturbation depth:
+            new Scene("deep", "0", "1", 1e-12, 3000),
+            new Scene("deeper", "0", "1", 1e-30, 5000),
+            new Scene("julia-dendrite", "0", "0", 3, 1000, 0, 1),
+            new Scene("julia-rabbit", "0", "0", 3, 1000, -0.123, 0.745),
+            new Scene("julia-siegel", "0", "0", 3, 1000, -0.390541, -0.586788),
+            new Scene("julia-dust", "0", "0", 3, 1000, -0.8, 0.156)
+    );
+
+    private static final RenderMode[] FRAME_MODES = {
+            RenderMode.STANDARD, RenderMode.PROGRESSIVE, RenderMode.BOUNDARY_TRACING, RenderMode.SOLID_GUESSING
+    };
+
+    private final int warmup = Integer.getInteger("mandelbrot.benchmark.warmup", 3);
+    private final int samples = Integer.getInteger("mandelbrot.benchmark.samples", 10);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && "compare".equals(args[0])) {
+            double threshold = Double.parseDouble(System.getProperty("mandelbrot.benchmark.threshold", "0.05"));
+            System.exit(compare(args[1], args[2], threshold) ? 0 : 1);
+        } else if (args.length != 0) {
+            System.err.println("Usage: java application.FractalBenchmark [compare <baseline> <results>]");
+            System.exit(2);
+        }
+
+        List<String> selected = null ;
+        String scenes = System.getProperty("mandelbrot.benchmark.scenes");
+        if (scenes != null) {
+            selected = Arrays.asList(scenes.split(","));
+        }
+        new FractalBenchmark().run(selected);
+    }
+
+    private void run(List<String> selectedScenes) {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(String.format(Locale.ROOT,
+                "{\"id\":\"environment\",\"java\":\"%s\",\"vm\":\"%s\",\"arch\":\"%s\",\"cores\":%d,\"warmup\":%d,\"samples\":%d}",
+                System.getProperty("java.version"), System.getProperty("java.vm.name"),
+                System.getProperty("os.arch"), cores, warmup, samples));
+
+        for (Scene scene : SCENES) {
+            if (selectedScenes != null && ! selectedScenes.contains(scene.name)) {
+                continue ;
+            }
+            ForkJoinPool single = new ForkJoinPool(1);
+            for (Map.Entry<String, Supplier<FractalView>> kernel : scene.kernels().entrySet()) {
+                benchmarkKernel(scene, kernel.getKey(), kernel.getValue(), single);
+            }
+            single.shutdown();
+
+            for (int threads = 1; threads <= cores; threads = nextThreadCount(threads, cores)) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                for (RenderMode mode : FRAME_MODES) {
+                    benchmarkFrame(scene, mode, threads, pool);
+                }
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static int nextThreadCount(int threads, int cores) {
+        return threads < cores && threads * 2 > cores ? cores : threads * 2 ;
+    }
+
+    private void benchmarkKernel(Scene scene, String kernel, Supplier<FractalView> factory, ForkJoinPool pool) {
+        long[] times = new long[samples];
+        long iterations = 0 ;
+        for (int run = -warmup; run < samples; run++) {
+            FractalView view = factory.get();
+            view.setRenderMode(RenderMode.STANDARD);
+            long start = System.nanoTime();
+            view.compute(pool, 1);
+            long elapsed = System.nanoTime() - start ;
+            if (run >= 0) {
+                times[run] = elapsed ;
+                iterations = 0 ;
+                for (int count : view.getIterationCounts()) {
+                    iterations += count ;
+                }
+            }
+        }
+        Arrays.sort(times);
+        double median = median(times);
+        report(String.format(Locale.ROOT,
+                "{\"id\":\"kernel/%s/%s\",\"kind\":\"kernel\",\"scene\":\"%s\",\"kernel\":\"%s\",\"threads\":1,"
+                + "\"iterations\":%d,\"score\":%.3f,\"unit\":\"Mit/s\",\"better\":\"higher\","
+                + "\"median_ms\":%.3f,\"min_ms\":%.3f,\"max_ms\":%.3f}",
+                scene.name, kernel, scene.name, kernel, iterations, iterations / (median / 1e9) / 1e6,
+                median / 1e6, times[0] / 1e6, times[times.length - 1] / 1e6));
+    }
+
+    private void benchmarkFrame(Scene scene, RenderMode mode, int threads, ForkJoinPool pool) {
+        long[] times = new long[samples];
+        String kernel = null ;
+        for (int run = -warmup; run < samples; run++) {
+            FractalView view = scene.explorerKernel().get();
+            kernel = view.getClass().getSimpleName();
+            view.setRenderMode(mode);
+            long start = System.nanoTime();
+            view.compute(pool, threads);
+            long elapsed = System.nanoTime() - start ;
+            if (run >= 0) {
+                times[run] = elapsed ;
+            }
+        }
+        Arrays.sort(times);
+        double median = median(times);
+        report(String.format(Locale.ROOT,
+                "{\"id\":\"frame/%s/%s/%d\",\"kind\":\"frame\",\"scene\":\"%s\",\"kernel\":\"%s\",\"mode\":\"%s\","
+                + "\"threads\":%d,\"score\":%.3f,\"unit\":\"ms\",\"better\":\"lower\","
+                + "\"median_ms\":%.3f,\"min_ms\":%.3f,\"max_ms\":%.3f}",
+                scene.name, mode, threads, scene.name, kernel, mode, threads, median / 1e6,
+                median / 1e6, times[0] / 1e6, times[times.length - 1] / 1e6));
+    }
+
+    private static double median(long[] sorted) {
+        int n = sorted.length ;
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2.0 ;
+    }
+
+    private static void report(String json) {
+        System.out.println(json);
+        System.out.flush();
+        Matcher id = ID.matcher(json);
+        Matcher score = SCORE.matcher(json);
+        if (id.find() && score.find()) {
+            System.err.printf("%-55s %12s%n", id.group(1), score.group(1));
+        }
+    }
+
+    /*
+     * Comparison of two result files. Only the fields written above need to be read, so
+     * a pair of patterns does instead of a JSON parser.
+     */
+
+    private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]*)\"");
+    private static final Pattern SCORE = Pattern.compile("\"score\":([-0-9.eE]+)");
+    private static final Pattern BETTER = Pattern.compile("\"better\":\"(higher|lower)\"");
+
+    private static boolean compare(String baselineFile, String resultsFile, double threshold) throws IOException {
+        Map<String, String> baseline = readResults(baselineFile);
+        Map<String, String> results = readResults(resultsFile);
+        int regressions = 0 ;
+        for (Map.Entry<String, String> result : results.entrySet()) {
+            String before = baseline.get(result.getKey());
+            if (before == null) {
+                continue ;
+            }
+            Matcher oldScore = SCORE.matcher(before);
+            Matcher newScore = SCORE.matcher(result.getValue());
+            Matcher better = BETTER.matcher(result.getValue());
+            if (! oldScore.find() || ! newScore.find() || ! better.find()) {
+                continue ;
+            }
+            double oldValue = Double.parseDouble(oldScore.group(1));
+            double newValue = Double.parseDouble(newScore.group(1));
+            double change = (newValue - oldValue) / oldValue ;
+            // positive is an improvement:
+            double improvement = "higher".equals(better.group(1)) ? change : -change ;
+            boolean regression = improvement < -threshold ;
+            if (regression) {
+                regressions++ ;
+            }
+            System.out.printf(Locale.ROOT, "%-55s %12.3f %12.3f %+8.1f%%%s%n", result.getKey(),
+                    oldValue, newValue, 100 * change, regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d regression(s) beyond %.0f%%%n", regressions, 100 * threshold);
+        return regressions == 0 ;
+    }
+
+    private static Map<String, String> readResults(String file) throws IOException {
+        Map<String, String> results = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(Paths.get(file))) {
+            Matcher id = ID.matcher(line);
+            if (id.find() && line.contains("\"score\"")) {
+                results.put(id.group(1), line);
+            }
+        }
+        return results ;
+    }
+}
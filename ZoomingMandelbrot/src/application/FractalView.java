@@ -1,39 +1,152 @@
 package application;
 
+import java.awt.image.BufferedImage;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 
-import javafx.geometry.Bounds;
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelFormat;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
-
+/**
+ * A view of a fractal, computed into primitive buffers of iteration counts and ARGB
+ * pixels. This class, its subclasses and the classes they use do not depend on JavaFX,
+ * so views can be computed on machines without a display; see {@link BatchRenderer}.
+ */
 public abstract class FractalView {
 
     private static final int[] PALETTE = createDefaultPalette();
 
+    // Edge length, in pixels, of the square tiles into which the image is divided for computation
+    public static final int TILE_SIZE = 32 ;
+
+    // Periodicity checks use this fraction of the pixel spacing as their tolerance
+    private static final double PERIODICITY_TOLERANCE = 1e-3 ;
+
+    // Rows and columns of a predecessor view are reused if they lie within this many pixels
+    private static final double REUSE_TOLERANCE = 0.5 ;
+
+    // Subsamples taken in each antialiased pixel: one in each cell of a 3x3 grid except the
+    // center, where the pixel itself was computed
+    private static final int SUBSAMPLES = 8 ;
+
+    // The cells of the grid, numbered in row-major order, in the order they are sampled:
+    // the corners first, so that pixels whose corners match the center can stop early
+    private static final int[] SUBSAMPLE_CELLS = {0, 2, 6, 8, 1, 3, 5, 7};
+
+    // Neighboring pixels whose colors differ by more than this in any channel are antialiased
+    private static final int EDGE_COLOR_THRESHOLD = 48 ;
 
+    /**
+     * Compute the number of iterations before the orbit starting from (x, y) escapes.
+     * @param moduli If the orbit escapes, <code>moduli[index]</code> receives the squared
+     * modulus of the point {@link #ESCAPE_EXTENSION} iterations past its escape
+     * @return The iteration count, or <code>maxIterations</code> if the orbit does not escape
+     */
     protected abstract int computeIterationCount(double x, double y,
-            int maxIterations);
+            int maxIterations, float[] moduli, int index);
 
     private final int maxIterations;
     private final int width;
     private final int height;
-    private final Bounds bounds;
-    private final WritableImage image;
-    private AtomicInteger minComputedIterations = new AtomicInteger(Integer.MAX_VALUE);
-    private AtomicInteger maxComputedIterations = new AtomicInteger(Integer.MIN_VALUE);
+    private final PlaneBounds bounds;
+    private volatile int minComputedIterations = Integer.MAX_VALUE;
+    private volatile int maxComputedIterations = Integer.MIN_VALUE;
+
+    private final int tileColumns ;
+    private final int tileRows ;
+    private final long[] tileTimes ;
+
+    // Taken from the buffer pool, if any, when first needed; null once disposed
+    private int[] iterationCounts ;
+    private float[] finalModuli ;
+    private TripleBuffer pixels ;
+    // The buffer being colored by recolor(), which holds colorLock while it runs
+    private int[] backPixels ;
+    private final Object colorLock = new Object();
+    private FrameBufferPool.Buffers buffers ;
+    private FrameBufferPool bufferPool ;
+    // The owner's reference, and one for each retain() not yet released
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean disposed = new AtomicBoolean();
+
+    // The position, in pixels, at which each column and row was actually computed
+    private final double[] columnPositions ;
+    private final double[] rowPositions ;
+    private FractalView predecessor ;
+    private double predecessorOffsetX ;
+    private double predecessorOffsetY ;
+
+    private TileCache tileCache ;
+    private int cacheLevel ;
+    private BigInteger cacheOriginX ;
+    private BigInteger cacheOriginY ;
+    private int[] palette = PALETTE ;
+    private int paletteOffset ;
+    private volatile ColoringMode coloringMode = ColoringMode.BANDED ;
+    // The coloring mode of the coloring in progress or last completed; guarded by colorLock
+    private ColoringMode appliedColoringMode ;
+    // Whether compute() is running, in which case it applies any change of coloring mode
+    // when it completes; guarded by colorLock
+    private boolean computing ;
+
+    // Statistics gathered separately for each tile, then merged:
+    private final int[] tileMinimum ;
+    private final int[] tileMaximum ;
+    // For HISTOGRAM, a histogram of the escaping iteration counts of each tile, from
+    // tileHistogramOrigins[tile], or LISTED_COUNTS if the counts span more values than the
+    // tile has pixels, and are listed instead
+    private final int[][] tileHistograms ;
+    private final int[] tileHistogramOrigins ;
+    // Palette index of each escaping iteration count from equalizedOrigin, for HISTOGRAM
+    private int[] equalizedIndex ;
+    private int equalizedOrigin ;
+    private final double periodicityEpsilon ;
 
-    public FractalView(int width, int height, Bounds bounds, int maxIterations) {
+    private RenderMode renderMode = RenderMode.STANDARD ;
+    private volatile boolean cancelled ;
+    // set once every pass of the computation has finished
+    private volatile boolean complete ;
+    private long generation ;
+    private final LongAdder iteratedPixels = new LongAdder();
+    private final LongAdder periodicPixels = new LongAdder();
+    private final LongAdder reusedPixels = new LongAdder();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder antialiasedPixels = new LongAdder();
+    private boolean antialiasing ;
+    // for each tile, the pixels antialiased, and the iteration counts and final moduli
+    // of their subsamples, SUBSAMPLES to a pixel; all guarded by colorLock
+    private int[][] edgePixels ;
+    private int[][] edgeCounts ;
+    private float[][] edgeModuli ;
+    private volatile long queuedTime ;
+    private Runnable onPassCompleted ;
+    private final AtomicLong imageVersion = new AtomicLong();
+
+    public FractalView(int width, int height, PlaneBounds bounds, int maxIterations) {
         this.width = width;
         this.height = height;
         this.bounds = bounds;
         this.maxIterations = maxIterations;
 
-        this.image = new WritableImage(width, height);
+        this.tileColumns = (width + TILE_SIZE - 1) / TILE_SIZE ;
+        this.tileRows = (height + TILE_SIZE - 1) / TILE_SIZE ;
+        this.tileTimes = new long[tileColumns * tileRows];
+        this.tileMinimum = new int[tileColumns * tileRows];
+        this.tileMaximum = new int[tileColumns * tileRows];
+        this.tileHistograms = new int[tileColumns * tileRows][];
+        this.tileHistogramOrigins = new int[tileColumns * tileRows];
+
+        this.columnPositions = new double[width];
+        this.rowPositions = new double[height];
+
+        this.periodicityEpsilon = PERIODICITY_TOLERANCE
+                * Math.min(bounds.getWidth() / width, bounds.getHeight() / height);
     }
 
     private static int[] createDefaultPalette() {
@@ -41,19 +154,51 @@ public abstract class FractalView {
         final int numCols = 256;
         int[] palette = new int[numCols];
         for (int i = 0; i < numCols; i++) {
-            Color color = Color.hsb(180.0 * i / numCols, 1.0, 1.0);
+            // fully saturated, full brightness hue from red (0) to cyan (180 degrees):
+            double sector = 180.0 * i / numCols / 60 ;
+            int s = (int) Math.floor(sector);
+            float rising = (float) (sector - s);
+            float falling = 1 - rising ;
+            float red = s == 0 ? 1 : s == 1 ? falling : 0 ;
+            float green = s == 0 ? rising : 1 ;
+            float blue = s == 2 ? rising : 0 ;
             int a = 255;
-            int r = (int) (255 * color.getRed());
-            int g = (int) (255 * color.getGreen());
-            int b = (int) (255 * color.getBlue());
+            int r = (int) (255 * red);
+            int g = (int) (255 * green);
+            int b = (int) (255 * blue);
             palette[i] = (a << 24) | (r << 16) | (g << 8) | b;
 
         }
         return palette;
     }
 
-    public Image getImage() {
-        return image;
+    /**
+     * @return The ARGB color of each pixel, in row-major order, as of the most recently
+     * completed coloring. The colors are triple buffered: coloring writes to a separate
+     * buffer, so the array returned is never modified while it is being read, and remains
+     * valid until the next call to this method. This must not be called by more than one
+     * thread at a time (typically the display thread), and the array must not be modified.
+     */
+    public int[] getPixels() {
+        ensureBuffers();
+        return pixels.front();
+    }
+
+    /**
+     * @return A number which increases each time the pixels are rewritten, so that
+     * displays can tell when they need to copy them.
+     */
+    public long getImageVersion() {
+        return imageVersion.get();
+    }
+
+    /**
+     * @return A copy of the pixels of this view as an opaque image, for writing to a file.
+     */
+    public BufferedImage toBufferedImage() {
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        result.setRGB(0, 0, width, height, getPixels(), 0, width);
+        return result ;
     }
 
     public int getWidth() {
@@ -64,7 +209,7 @@ public abstract class FractalView {
         return height;
     }
 
-    public Bounds getBounds() {
+    public PlaneBounds getBounds() {
         return bounds;
     }
 
@@ -73,68 +218,1636 @@ public abstract class FractalView {
     }
 
     public int getMinComputedIterations() {
-        return minComputedIterations.get();
+        return minComputedIterations;
     }
 
     public int getMaxComputedIterations() {
-        return maxComputedIterations.get();
+        return maxComputedIterations;
+    }
+
+    /**
+     * @return The iteration count of each pixel, in row-major order. This is the live buffer
+     * used by this view, and must not be modified.
+     */
+    public int[] getIterationCounts() {
+        ensureBuffers();
+        return iterationCounts;
+    }
+
+    /**
+     * @return The squared modulus of the final point of the orbit of each pixel which escaped,
+     * in row-major order. This is the live buffer used by this view, and must not be modified.
+     */
+    public float[] getFinalModuli() {
+        ensureBuffers();
+        return finalModuli;
+    }
+
+    public int[] getPalette() {
+        return palette.clone();
+    }
+
+    /**
+     * Set the palette used to color escaping pixels. Call {@link #recolor(Executor, int)}
+     * to apply the change to a view which has already been computed.
+     * @param palette ARGB colors, which must not be empty.
+     */
+    public void setPalette(int[] palette) {
+        if (palette.length == 0) {
+            throw new IllegalArgumentException("Palette must not be empty");
+        }
+        this.palette = palette.clone();
+    }
+
+    public int getPaletteOffset() {
+        return paletteOffset;
+    }
+
+    /**
+     * Set an offset which is added to each palette index, so that incrementing it on each
+     * frame and calling {@link #recolor(Executor, int)} cycles the colors.
+     */
+    public void setPaletteOffset(int paletteOffset) {
+        this.paletteOffset = paletteOffset;
+    }
+
+    public ColoringMode getColoringMode() {
+        return coloringMode;
+    }
+
+    /**
+     * Set how iteration counts are mapped to the palette. Call
+     * {@link #recolor(Executor, int)} to apply the change to a view which has already
+     * been computed.
+     */
+    public void setColoringMode(ColoringMode coloringMode) {
+        this.coloringMode = coloringMode;
+    }
+
+    /**
+     * @return The time, in nanoseconds, taken to compute each tile in the last computation,
+     * indexed by <code>tileRow * getTileColumns() + tileColumn</code>.
+     */
+    public long[] getTileTimes() {
+        return tileTimes.clone();
+    }
+
+    public int getTileColumns() {
+        return tileColumns;
+    }
+
+    public int getTileRows() {
+        return tileRows;
+    }
+
+    // for FrameMetrics, which reads the times without copying them
+    long[] tileTimes() {
+        return tileTimes;
+    }
+
+    /**
+     * @return The ratio of the slowest tile's compute time to the mean tile compute time
+     * in the last computation. A value close to 1 indicates evenly balanced work.
+     */
+    public double getTileImbalance() {
+        long max = 0 ;
+        long total = 0 ;
+        for (long time : tileTimes) {
+            max = Math.max(max, time);
+            total += time ;
+        }
+        return total == 0 ? 1 : (double) max * tileTimes.length / total ;
+    }
+
+    /**
+     * @return The number of pixels in the last computation whose orbits were found to be
+     * periodic, and so were finished early instead of iterating to the maximum.
+     */
+    public long getPeriodicPixelCount() {
+        return periodicPixels.sum();
+    }
+
+    /**
+     * Record that a kernel found the orbits of <code>count</code> pixels to be periodic.
+     */
+    protected void recordPeriodicPixels(int count) {
+        periodicPixels.add(count);
+    }
+
+    /**
+     * Record work done by a subclass which computes the image itself; see
+     * {@link #getIterationCount()}.
+     */
+    protected void recordIterations(long count) {
+        iterations.add(count);
+    }
+
+    /**
+     * @return The distance within which an orbit returning to an earlier point is taken to
+     * be periodic. This is small compared to the pixel spacing, so that escaping orbits
+     * are not mistaken for periodic ones.
+     */
+    protected double getPeriodicityEpsilon() {
+        return periodicityEpsilon;
+    }
+
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * Set the strategy used to compute the image. In {@link RenderMode#PROGRESSIVE} mode,
+     * the first pass computes one pixel in 16, and each subsequent pass doubles the
+     * number of computed pixels, without recomputing any pixel from an earlier pass.
+     * After each pass except the last, the image is updated with every computed pixel
+     * scaled up to cover the pixels not yet computed, and the listener set with
+     * {@link #setOnPassCompleted(Runnable)} is notified.
+     */
+    public void setRenderMode(RenderMode renderMode) {
+        this.renderMode = renderMode;
+    }
+
+    /**
+     * @return The number of pixels which were actually iterated in the last computation,
+     * as opposed to being filled in by the boundary tracing or solid guessing modes.
+     */
+    public long getIteratedPixelCount() {
+        return iteratedPixels.sum();
+    }
+
+    /**
+     * @return The sum of the iteration counts of the pixels which were actually iterated
+     * in the last computation. Pixels found to be in the main cardioid or bulb, or to have
+     * periodic orbits, count the maximum iterations although they finish early, so this is
+     * an upper bound on the work done.
+     */
+    public long getIterationCount() {
+        return iterations.sum();
+    }
+
+    /**
+     * @return The number of pixels which were antialiased in the last computation.
+     */
+    public long getAntialiasedPixelCount() {
+        return antialiasedPixels.sum();
+    }
+
+    public boolean isAntialiasing() {
+        return antialiasing;
+    }
+
+    /**
+     * Antialias the edges in the image. Once the image has been computed, pixels on the
+     * boundary of the set, whose neighbors include both escaping and non-escaping pixels,
+     * and pixels whose colors differ strongly from those of their neighbors, are found.
+     * Only those pixels are supersampled, with {@link #SUBSAMPLES} further samples in a
+     * jittered grid, and are colored with the average color of all their samples. If the
+     * samples at the corners of a pixel all have the same iteration count as the pixel,
+     * as they do for most non-escaping pixels on the boundary, the rest are not taken. The
+     * subsamples are kept as iteration counts, so the view may be recolored as before.
+     * The edges are found from the colors of the coloring mode in effect at the time.
+     */
+    public void setAntialiasing(boolean antialiasing) {
+        this.antialiasing = antialiasing;
+    }
+
+    /**
+     * @return The number of pixels which were taken from the predecessor view in the last
+     * computation, instead of being computed.
+     */
+    public long getReusedPixelCount() {
+        return reusedPixels.sum();
+    }
+
+    /**
+     * Reuse the pixels of an already computed view in the next computation, in the manner
+     * of XaoS. Each column of the predecessor is mapped to the column of this view nearest
+     * to it, and is reused if it lies within half a pixel; rows are matched in the same
+     * way. Pixels whose row and column both match are copied, and only the remaining rows
+     * and columns are computed. Each row and column remembers the position it was actually
+     * computed at, so errors do not accumulate over a sequence of views.
+     * <p>
+     * The predecessor must have the same size as this view, and is released once this view
+     * has been computed. It is only reused if its own computation is complete, and this view
+     * is otherwise computed from scratch. Iteration counts are reused across different iteration levels
+     * wherever they are still valid.
+     * @param offsetX The x-coordinate of the center of this view relative to the center
+     * of the predecessor
+     * @param offsetY The y-coordinate of the center of this view relative to the center
+     * of the predecessor
+     */
+    public void setPredecessor(FractalView predecessor, double offsetX, double offsetY) {
+        this.predecessor = predecessor;
+        this.predecessorOffsetX = offsetX;
+        this.predecessorOffsetY = offsetY;
+    }
+
+    /**
+     * Assemble this view from tiles in a {@link TileCache}, computing and caching only the
+     * tiles which are missing. This requires every pixel of the view to lie on the pixel
+     * grid of the given level of the cache: pixel (x, y) of this view is taken to be pixel
+     * <code>(originX + x, originY + y)</code> of that level. Missing tiles are computed in
+     * full, including any part of them outside this view, with the render mode of this
+     * view. Progressive rendering first shows the coarse passes over the missing tiles,
+     * then finishes them from those passes before caching them. A predecessor which is
+     * still available is reused in preference to the cache.
+     * @param cache The cache, or null to compute without one
+     */
+    public void setTileCache(TileCache cache, int level, BigInteger originX, BigInteger originY) {
+        this.tileCache = cache;
+        this.cacheLevel = level;
+        this.cacheOriginX = originX;
+        this.cacheOriginY = originY;
+    }
+
+    /**
+     * Take the per-pixel buffers of this view from the given pool, rather than allocating
+     * them, and return them to it when the view is disposed. This must be called before
+     * the view is first computed.
+     */
+    public void setBufferPool(FrameBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    private synchronized void ensureBuffers() {
+        if (pixels == null) {
+            if (references.get() == 0) {
+                throw new IllegalStateException("The view has been disposed");
+            }
+            buffers = bufferPool == null
+                    ? new FrameBufferPool.Buffers(width * height)
+                    : bufferPool.acquire(width * height);
+            iterationCounts = buffers.iterationCounts ;
+            finalModuli = buffers.finalModuli ;
+            pixels = buffers.pixels ;
+        }
+    }
+
+    /**
+     * Claim the buffers of this view for a use which may outlive its owner, such as
+     * recoloring it or reusing its pixels in another view. Each successful call must be
+     * matched by a call to {@link #release()}. This may be called from any thread.
+     * @return false if the view has already been disposed, in which case its buffers may
+     * no longer be used.
+     */
+    public boolean retain() {
+        for (int count = references.get(); count > 0; count = references.get()) {
+            if (references.compareAndSet(count, count + 1)) {
+                return true ;
+            }
+        }
+        return false ;
+    }
+
+    /**
+     * Give up a claim made by {@link #retain()}.
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            returnBuffers();
+        }
     }
 
+    /**
+     * Called by the owner of this view when it is no longer needed, typically once it has
+     * been shown and replaced. Its buffers are returned to the pool as soon as any claims
+     * made by {@link #retain()} have been released, after which the view may not be used.
+     * Calls after the first have no effect.
+     */
+    public void dispose() {
+        if (disposed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    private synchronized void returnBuffers() {
+        if (buffers != null && bufferPool != null) {
+            bufferPool.release(buffers);
+        }
+        buffers = null ;
+        iterationCounts = null ;
+        finalModuli = null ;
+        pixels = null ;
+    }
+
+    /**
+     * Abandon the computation of this view. This may be called from any thread. A
+     * computation in progress stops at the start of the next row or tile, and the image is
+     * left incomplete.
+     */
+    public void cancel() {
+        cancelled = true ;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the last call to {@link #compute(Executor, int)} finished without
+     * being cancelled. Until then the iteration counts may be those of a partial pass
+     * of a progressive computation.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return The generation of requests to which this view belongs. Views of an earlier
+     * generation than the latest are no longer wanted.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * The time, from {@link System#nanoTime()}, at which this view was last placed in a
+     * queue, so that the time it spends waiting there can be measured.
+     */
+    long getQueuedTime() {
+        return queuedTime;
+    }
+
+    void setQueuedTime(long queuedTime) {
+        this.queuedTime = queuedTime;
+    }
+
+    /**
+     * Set a callback to be invoked, on the computing thread, whenever an intermediate
+     * pass of a progressive computation has been written to the image.
+     */
+    public void setOnPassCompleted(Runnable onPassCompleted) {
+        this.onPassCompleted = onPassCompleted;
+    }
+
+    /**
+     * Compute the image. The image is divided into square tiles of size {@link #TILE_SIZE}.
+     * If <code>exec</code> is a {@link ForkJoinPool}, the tiles are computed by recursively
+     * splitting the range of tiles, so idle workers steal work from busy ones. Otherwise
+     * <code>parallelizationLevel</code> tasks are submitted to <code>exec</code>, each of
+     * which repeatedly claims the next uncomputed tile until none remain. In either case
+     * this method blocks until the image is complete, or until the computation is abandoned
+     * by {@link #cancel()}.
+     */
     public void compute(Executor exec, int parallelizationLevel) {
 
-        final int numStrips = parallelizationLevel;
-        final int[] boundaries = new int[numStrips + 1];
-        for (int i = 0; i <= numStrips; i++) {
-            boundaries[i] = i * height / numStrips;
-        }
-        final CountDownLatch latch = new CountDownLatch(numStrips);
-        final PixelWriter pw = image.getPixelWriter();
-
-        for (int strip = 0; strip < numStrips; strip++) {
-            final int startRow = boundaries[strip];
-            final int endRow = boundaries[strip + 1];
-            exec.execute(() -> {
-                try {
-                    int[] pixels = new int[width * (endRow - startRow)];
-                    for (int y = startRow; y < endRow; y++) {
-                        final double cy = bounds.getMinY() + (height - y) * bounds.getHeight() / height;
-                        for (int x = 0; x < width; x++) {
-                            final double cx = bounds.getMinX() + x * bounds.getWidth() / width;
-                            pixels[(y - startRow) * width + x] = computePixel(cx, cy);
+        ensureBuffers();
+        complete = false ;
+        Arrays.fill(tileTimes, 0);
+        iteratedPixels.reset();
+        periodicPixels.reset();
+        reusedPixels.reset();
+        iterations.reset();
+        antialiasedPixels.reset();
+        synchronized (colorLock) {
+            computing = true ;
+            edgePixels = null ;
+            edgeCounts = null ;
+            edgeModuli = null ;
+        }
+        try {
+            for (int x = 0; x < width; x++) {
+                columnPositions[x] = x ;
+            }
+            for (int y = 0; y < height; y++) {
+                rowPositions[y] = y ;
+            }
+
+            if (! computeImage(exec, parallelizationLevel, iterationCounts, finalModuli)) {
+                computePixels(exec, parallelizationLevel);
+            }
+
+            if (antialiasing && ! cancelled) {
+                // edges are found from the colors, which depend on statistics of the whole image
+                collectStatistics(exec, parallelizationLevel);
+                antialias(exec, parallelizationLevel);
+            }
+
+            if (! cancelled) {
+                color(exec, parallelizationLevel);
+                complete = true ;
+            }
+        } finally {
+            synchronized (colorLock) {
+                computing = false ;
+                // the coloring mode may have changed since the image was colored:
+                if (! cancelled && appliedColoringMode != coloringMode) {
+                    color(exec, parallelizationLevel);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the whole image at once, for subclasses which do not compute the iteration
+     * count of each pixel independently. Such a subclass writes the iteration count and
+     * final modulus of every pixel to the given buffers, which are left as they were by
+     * earlier use, and returns true; the render mode, predecessor and tile cache are then
+     * ignored. The computation should stop early if the view is cancelled.
+     * @return false, for the image to be computed pixel by pixel
+     */
+    protected boolean computeImage(Executor exec, int parallelizationLevel,
+            int[] iterationCounts, float[] finalModuli) {
+        return false ;
+    }
+
+    private void computePixels(Executor exec, int parallelizationLevel) {
+        final FractalView source = retainPredecessor();
+        if (source != null) {
+            try {
+                final int[] columnSources = matchPositions(source.columnPositions, source.bounds.getWidth(),
+                        columnPositions, bounds.getWidth(), predecessorOffsetX, 1);
+                final int[] rowSources = matchPositions(source.rowPositions, source.bounds.getHeight(),
+                        rowPositions, bounds.getHeight(), predecessorOffsetY, -1);
+                computeTiles(exec, parallelizationLevel, tile -> reuseTile(source, columnSources, rowSources, tile));
+            } finally {
+                source.release();
+            }
+        } else if (tileCache != null) {
+            computeFromCache(exec, parallelizationLevel);
+        } else {
+            switch (renderMode) {
+            case PROGRESSIVE:
+                for (int pass = 0; pass < PASSES; pass++) {
+                    final int currentPass = pass ;
+                    computeTiles(exec, parallelizationLevel, tile -> computeTile(tile, currentPass));
+                    if (pass == PASSES - 1 || cancelled) {
+                        break ;
+                    }
+                    color(exec, parallelizationLevel);
+                    if (onPassCompleted != null) {
+                        onPassCompleted.run();
+                    }
+                }
+                break ;
+            case BOUNDARY_TRACING:
+                computeTiles(exec, parallelizationLevel, this::traceTile);
+                break ;
+            case SOLID_GUESSING:
+                computeTiles(exec, parallelizationLevel, this::guessTile);
+                break ;
+            default:
+                computeTiles(exec, parallelizationLevel, tile -> computeTile(tile, FULL_PASS));
+            }
+        }
+    }
+
+    /**
+     * @return The predecessor, claimed with {@link #retain()}, if it has the same size as
+     * this view, has been computed in full and its buffers are still available; otherwise
+     * null. The counts of a partial progressive view are only approximate.
+     */
+    private FractalView retainPredecessor() {
+        final FractalView source = predecessor ;
+        predecessor = null ;
+        if (source == null || source.width != width || source.height != height
+                || ! source.complete || ! source.retain()) {
+            return null ;
+        }
+        synchronized (source) {
+            if (source.iterationCounts != null) {
+                return source ;
+            }
+        }
+        source.release();
+        return null ;
+    }
+
+    /**
+     * Convert the iteration counts computed by the last call to
+     * {@link #compute(Executor, int)} to colors, and write them to the pixel buffer. No fractal
+     * computation is performed, so this is fast enough to call on every frame when
+     * changing the palette. This method blocks until the pixels have been written, and
+     * may be called while the view is displayed: the colors are written to a back buffer
+     * which is then published for {@link #getPixels()}. Concurrent calls are serialized.
+     * If the view is being computed, this does nothing: the computation colors the image
+     * as it completes, with the coloring mode current then.
+     * <p>
+     * The minimum and maximum iteration counts, and the histogram, are gathered here rather
+     * than as pixels are computed: each tile is scanned by one task into its own slot, and
+     * the slots are merged once all tiles are done, so tasks share no mutable state.
+     */
+    public void recolor(Executor exec, int parallelizationLevel) {
+        ensureBuffers();
+        synchronized (colorLock) {
+            if (! computing) {
+                color(exec, parallelizationLevel);
+            }
+        }
+    }
+
+    private void color(Executor exec, int parallelizationLevel) {
+        synchronized (colorLock) {
+            collectStatistics(exec, parallelizationLevel);
+            backPixels = pixels.back();
+            runTiles(exec, parallelizationLevel, tileColumns * tileRows, this::colorTile);
+            pixels.publish();
+            imageVersion.incrementAndGet();
+        }
+    }
+
+    private void collectStatistics(Executor exec, int parallelizationLevel) {
+        synchronized (colorLock) {
+            appliedColoringMode = coloringMode ;
+            runTiles(exec, parallelizationLevel, tileColumns * tileRows, this::collectTileStatistics);
+            mergeStatistics();
+        }
+    }
+
+    private void collectTileStatistics(int tile) {
+        final int startX = (tile % tileColumns) * TILE_SIZE ;
+        final int startY = (tile / tileColumns) * TILE_SIZE ;
+        final int endX = Math.min(startX + TILE_SIZE, width);
+        final int endY = Math.min(startY + TILE_SIZE, height);
+        int min = Integer.MAX_VALUE ;
+        int max = Integer.MIN_VALUE ;
+        int escapedMin = Integer.MAX_VALUE ;
+        int escaped = 0 ;
+        for (int y = startY; y < endY; y++) {
+            for (int index = y * width + startX; index < y * width + endX; index++) {
+                int iterations = iterationCounts[index];
+                min = Math.min(min, iterations);
+                if (iterations < maxIterations) {
+                    max = Math.max(max, iterations);
+                    escapedMin = Math.min(escapedMin, iterations);
+                    escaped++ ;
+                }
+            }
+        }
+        tileMinimum[tile] = min ;
+        tileMaximum[tile] = max ;
+
+        tileHistograms[tile] = null ;
+        if (appliedColoringMode == ColoringMode.HISTOGRAM && escaped > 0) {
+            final boolean listed = max - escapedMin >= escaped ;
+            final int[] histogram = new int[listed ? escaped : max - escapedMin + 1];
+            int listedCount = 0 ;
+            for (int y = startY; y < endY; y++) {
+                for (int index = y * width + startX; index < y * width + endX; index++) {
+                    int iterations = iterationCounts[index];
+                    if (iterations < maxIterations) {
+                        if (listed) {
+                            histogram[listedCount++] = iterations ;
+                        } else {
+                            histogram[iterations - escapedMin]++ ;
                         }
                     }
-                    pw.setPixels(0, startRow, width, endRow - startRow,
-                            PixelFormat.getIntArgbInstance(), pixels, 0, width);
-                    
-                } finally {
-                    latch.countDown();
+                }
+            }
+            tileHistograms[tile] = histogram ;
+            tileHistogramOrigins[tile] = listed ? LISTED_COUNTS : escapedMin ;
+        }
+    }
+
+    private static final int LISTED_COUNTS = Integer.MIN_VALUE ;
+
+    private void mergeStatistics() {
+        int min = Integer.MAX_VALUE ;
+        int max = Integer.MIN_VALUE ;
+        for (int tile = 0; tile < tileMinimum.length; tile++) {
+            min = Math.min(min, tileMinimum[tile]);
+            max = Math.max(max, tileMaximum[tile]);
+        }
+        minComputedIterations = min ;
+        maxComputedIterations = max ;
+
+        equalizedIndex = null ;
+        if (appliedColoringMode == ColoringMode.HISTOGRAM && max >= min) {
+            // every escaping count lies in [min, max]:
+            final int[] histogram = new int[max - min + 1];
+            long escaped = 0 ;
+            for (int tile = 0; tile < tileHistograms.length; tile++) {
+                final int[] tileHistogram = tileHistograms[tile];
+                if (tileHistogram == null) {
+                    continue ;
+                }
+                final int origin = tileHistogramOrigins[tile];
+                if (origin == LISTED_COUNTS) {
+                    for (int iterations : tileHistogram) {
+                        histogram[iterations - min]++ ;
+                    }
+                    escaped += tileHistogram.length ;
+                } else {
+                    for (int i = 0; i < tileHistogram.length; i++) {
+                        histogram[origin - min + i] += tileHistogram[i];
+                        escaped += tileHistogram[i];
+                    }
+                }
+                tileHistograms[tile] = null ;
+            }
+            long cumulative = 0 ;
+            for (int i = 0; i < histogram.length; i++) {
+                cumulative += histogram[i];
+                histogram[i] = (int) ((palette.length - 1) * cumulative / escaped) ;
+            }
+            equalizedIndex = histogram ;
+            equalizedOrigin = min ;
+        }
+    }
+
+    private void colorTile(int tile) {
+        final int startX = (tile % tileColumns) * TILE_SIZE ;
+        final int startY = (tile / tileColumns) * TILE_SIZE ;
+        final int endX = Math.min(startX + TILE_SIZE, width);
+        final int endY = Math.min(startY + TILE_SIZE, height);
+        final int[] target = backPixels ;
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                int index = y * width + x ;
+                target[index] = pixelColor(index);
+            }
+        }
+        if (edgePixels != null && edgePixels[tile] != null) {
+            final int[] edges = edgePixels[tile];
+            for (int i = 0; i < edges.length; i++) {
+                target[edges[i]] = averageColor(target[edges[i]], edgeCounts[tile], edgeModuli[tile], i * SUBSAMPLES);
+            }
+        }
+    }
+
+    private int pixelColor(int index) {
+        return appliedColoringMode == ColoringMode.SMOOTH
+                ? computeSmoothColor(iterationCounts[index], finalModuli[index])
+                : computeColor(iterationCounts[index]);
+    }
+
+    /*
+     * Antialiasing. Each tile finds its own edge pixels, comparing them with neighbors in
+     * other tiles where necessary, and computes their subsamples.
+     */
+
+    private void antialias(Executor exec, int parallelizationLevel) {
+        final int tiles = tileColumns * tileRows ;
+        final int[][] tileEdges = new int[tiles][];
+        final int[][] tileCounts = new int[tiles][];
+        final float[][] tileModuli = new float[tiles][];
+        runTiles(exec, parallelizationLevel, tiles, tile -> {
+            if (cancelled) {
+                return ;
+            }
+            long start = System.nanoTime();
+            final int[] edges = findEdges(tile);
+            final int[] counts = new int[edges.length * SUBSAMPLES];
+            final float[] moduli = new float[edges.length * SUBSAMPLES];
+            long total = 0 ;
+            for (int i = 0; i < edges.length && ! cancelled; i++) {
+                final int x = edges[i] % width ;
+                final int y = edges[i] / width ;
+                final int first = i * SUBSAMPLES ;
+                for (int s = 0; s < SUBSAMPLES; s++) {
+                    if (s == SUBSAMPLES / 2 && matchesPixel(counts, first, s, iterationCounts[edges[i]])) {
+                        // the corners stand for the rest of the pixel
+                        System.arraycopy(counts, first, counts, first + s, s);
+                        System.arraycopy(moduli, first, moduli, first + s, s);
+                        break ;
+                    }
+                    final int cell = SUBSAMPLE_CELLS[s];
+                    final long seed = 2 * ((long) edges[i] * SUBSAMPLES + s);
+                    final double dx = (cell % 3 - 1 + jitter(seed) - 0.5) / 3 ;
+                    final double dy = (cell / 3 - 1 + jitter(seed + 1) - 0.5) / 3 ;
+                    final int sample = first + s ;
+                    counts[sample] = computeIterationCount(x + dx, y + dy, moduli, sample);
+                    total += counts[sample];
+                }
+            }
+            tileEdges[tile] = edges ;
+            tileCounts[tile] = counts ;
+            tileModuli[tile] = moduli ;
+            antialiasedPixels.add(edges.length);
+            iterations.add(total);
+            tileTimes[tile] += System.nanoTime() - start ;
+        });
+        synchronized (colorLock) {
+            edgePixels = tileEdges ;
+            edgeCounts = tileCounts ;
+            edgeModuli = tileModuli ;
+        }
+    }
+
+    private static boolean matchesPixel(int[] counts, int first, int count, int pixelCount) {
+        for (int sample = first; sample < first + count; sample++) {
+            if (counts[sample] != pixelCount) {
+                return false ;
+            }
+        }
+        return true ;
+    }
+
+    /**
+     * @return The indices of the pixels of a tile which lie on an edge
+     */
+    private int[] findEdges(int tile) {
+        final int startX = (tile % tileColumns) * TILE_SIZE ;
+        final int startY = (tile / tileColumns) * TILE_SIZE ;
+        final int endX = Math.min(startX + TILE_SIZE, width);
+        final int endY = Math.min(startY + TILE_SIZE, height);
+
+        // the colors of the tile and a border of its neighbors' pixels, each computed once;
+        // the low bit of each pixel's alpha is cleared if it does not escape
+        final int windowX = Math.max(startX - 1, 0);
+        final int windowY = Math.max(startY - 1, 0);
+        final int windowWidth = Math.min(endX + 1, width) - windowX ;
+        final int windowHeight = Math.min(endY + 1, height) - windowY ;
+        final int[] window = new int[windowWidth * windowHeight];
+        for (int y = 0; y < windowHeight; y++) {
+            for (int x = 0; x < windowWidth; x++) {
+                int index = (windowY + y) * width + windowX + x ;
+                int color = pixelColor(index);
+                window[y * windowWidth + x] = iterationCounts[index] >= maxIterations ? color & ~(1 << 24) : color ;
+            }
+        }
+
+        int[] edges = new int[64];
+        int count = 0 ;
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                final int position = (y - windowY) * windowWidth + x - windowX ;
+                final int color = window[position];
+                if ((x > 0 && isEdge(color, window[position - 1]))
+                        || (x < width - 1 && isEdge(color, window[position + 1]))
+                        || (y > 0 && isEdge(color, window[position - windowWidth]))
+                        || (y < height - 1 && isEdge(color, window[position + windowWidth]))) {
+                    if (count == edges.length) {
+                        edges = Arrays.copyOf(edges, 2 * count);
+                    }
+                    edges[count++] = y * width + x ;
+                }
+            }
+        }
+        return Arrays.copyOf(edges, count);
+    }
+
+    private static boolean isEdge(int color, int neighborColor) {
+        // pixels on either side of the boundary of the set
+        if (((color ^ neighborColor) & (1 << 24)) != 0) {
+            return true ;
+        }
+        for (int shift = 0; shift < 24; shift += 8) {
+            if (Math.abs(((color >>> shift) & 0xff) - ((neighborColor >>> shift) & 0xff)) > EDGE_COLOR_THRESHOLD) {
+                return true ;
+            }
+        }
+        return false ;
+    }
+
+    /**
+     * @return The average of a pixel's color and the colors of its subsamples
+     */
+    private int averageColor(int color, int[] counts, float[] moduli, int first) {
+        int red = (color >>> 16) & 0xff ;
+        int green = (color >>> 8) & 0xff ;
+        int blue = color & 0xff ;
+        for (int sample = first; sample < first + SUBSAMPLES; sample++) {
+            int iterations = counts[sample];
+            if (equalizedIndex != null && iterations < maxIterations) {
+                // subsamples may escape sooner or later than any pixel of the image
+                iterations = Math.max(equalizedOrigin, Math.min(iterations, equalizedOrigin + equalizedIndex.length - 1));
+            }
+            int sampleColor = appliedColoringMode == ColoringMode.SMOOTH
+                    ? computeSmoothColor(iterations, moduli[sample])
+                    : computeColor(iterations);
+            red += (sampleColor >>> 16) & 0xff ;
+            green += (sampleColor >>> 8) & 0xff ;
+            blue += sampleColor & 0xff ;
+        }
+        final int samples = SUBSAMPLES + 1 ;
+        return 0xff000000 | ((red + samples / 2) / samples) << 16
+                | ((green + samples / 2) / samples) << 8 | (blue + samples / 2) / samples ;
+    }
+
+    /**
+     * @return A number in [0, 1) determined by the seed, which spreads nearby seeds apart
+     */
+    private static double jitter(long seed) {
+        seed = (seed ^ (seed >>> 33)) * 0xff51afd7ed558ccdL ;
+        seed = (seed ^ (seed >>> 33)) * 0xc4ceb9fe1a85ec53L ;
+        seed ^= seed >>> 33 ;
+        return (seed >>> 11) * 0x1.0p-53 ;
+    }
+
+    private void computeTiles(Executor exec, int parallelizationLevel, IntConsumer computation) {
+        runTiles(exec, parallelizationLevel, tileColumns * tileRows, tile -> {
+            if (cancelled) {
+                return ;
+            }
+            long start = System.nanoTime();
+            computation.accept(tile);
+            tileTimes[tile] += System.nanoTime() - start ;
+        });
+    }
+
+    /**
+     * Run <code>numTiles</code> independent tasks, numbered from 0, in the manner described
+     * for {@link #compute(Executor, int)}, and wait for them all to complete.
+     */
+    protected final void runTiles(Executor exec, int parallelizationLevel, int numTiles, IntConsumer tileComputation) {
+
+        if (exec instanceof ForkJoinPool) {
+            ((ForkJoinPool) exec).invoke(new TileTask(tileComputation, 0, numTiles));
+        } else {
+            final AtomicInteger nextTile = new AtomicInteger();
+            final CountDownLatch latch = new CountDownLatch(parallelizationLevel);
+            for (int worker = 0; worker < parallelizationLevel; worker++) {
+                exec.execute(() -> {
+                    try {
+                        for (int tile = nextTile.getAndIncrement(); tile < numTiles; tile = nextTile.getAndIncrement()) {
+                            tileComputation.accept(tile);
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class TileTask extends RecursiveAction {
+
+        private final IntConsumer tileComputation ;
+        private final int startTile ;
+        private final int endTile ;
+
+        TileTask(IntConsumer tileComputation, int startTile, int endTile) {
+            this.tileComputation = tileComputation ;
+            this.startTile = startTile ;
+            this.endTile = endTile ;
+        }
+
+        @Override
+        protected void compute() {
+            if (endTile - startTile == 1) {
+                tileComputation.accept(startTile);
+            } else {
+                int mid = (startTile + endTile) >>> 1 ;
+                invokeAll(new TileTask(tileComputation, startTile, mid),
+                        new TileTask(tileComputation, mid, endTile));
+            }
+        }
+    }
+
+    /*
+     * Progressive passes. Each pixel belongs to exactly one pass, determined by its
+     * coordinates modulo 4. For each row, a pass computes the pixels from a given
+     * offset with a given step (or none), and fills a block of the given size below
+     * and to the right of each computed pixel. Tiles are a multiple of 4 pixels in
+     * size, so blocks never cross tile boundaries.
+     */
+    private static final int PASSES = 4 ;
+    private static final int FULL_PASS = -1 ;
+
+    private static int passOffset(int pass, int y) {
+        switch (pass) {
+        case 0: return y % 4 == 0 ? 0 : -1 ;
+        case 1: return y % 4 == 0 ? 2 : y % 4 == 2 ? 0 : -1 ;
+        case 2: return y % 2 == 0 ? 1 : -1 ;
+        case 3: return y % 2 == 1 ? 0 : -1 ;
+        default: return 0 ;
+        }
+    }
+
+    private static int passStep(int pass, int y) {
+        switch (pass) {
+        case 0: return 4 ;
+        case 1: return y % 4 == 0 ? 4 : 2 ;
+        case 2: return 2 ;
+        default: return 1 ;
+        }
+    }
+
+    private static final int[] PASS_BLOCK_WIDTH = {4, 2, 1, 1};
+    private static final int[] PASS_BLOCK_HEIGHT = {4, 2, 2, 1};
+
+    private void computeTile(int tile, int pass) {
+        final int startX = (tile % tileColumns) * TILE_SIZE ;
+        final int startY = (tile / tileColumns) * TILE_SIZE ;
+        final int endX = Math.min(startX + TILE_SIZE, width);
+        final int endY = Math.min(startY + TILE_SIZE, height);
+
+        final int blockWidth = pass == FULL_PASS ? 1 : PASS_BLOCK_WIDTH[pass];
+        final int blockHeight = pass == FULL_PASS ? 1 : PASS_BLOCK_HEIGHT[pass];
+
+        final int[] rowIterations = new int[TILE_SIZE];
+        final float[] rowModuli = new float[TILE_SIZE];
+        for (int y = startY; y < endY && ! cancelled; y++) {
+            int offset = pass == FULL_PASS ? 0 : passOffset(pass, y);
+            if (offset < 0) {
+                continue ;
+            }
+            int step = pass == FULL_PASS ? 1 : passStep(pass, y);
+            int count = (endX - startX - offset + step - 1) / step ;
+            computeIterationCounts(y, startX + offset, step, count, rowIterations, rowModuli);
+            long rowTotal = 0 ;
+            for (int i = 0; i < count; i++) {
+                int iterations = rowIterations[i];
+                rowTotal += iterations ;
+                float modulus = rowModuli[i];
+                int x = startX + offset + i * step ;
+                int blockEndX = Math.min(x + blockWidth, endX);
+                int blockEndY = Math.min(y + blockHeight, endY);
+                for (int by = y; by < blockEndY; by++) {
+                    for (int bx = x; bx < blockEndX; bx++) {
+                        iterationCounts[by * width + bx] = iterations ;
+                        finalModuli[by * width + bx] = modulus ;
+                    }
+                }
+            }
+            iteratedPixels.add(count);
+            this.iterations.add(rowTotal);
+        }
+    }
+
+    /*
+     * Frame reuse. Positions are in pixels along one axis, measured downwards for rows,
+     * so the direction of the axis in the complex plane is given by sign.
+     */
+
+    private static int[] matchPositions(double[] sourcePositions, double sourceSize,
+            double[] positions, double size, double offset, int sign) {
+        final int n = positions.length ;
+        final int[] sources = new int[n];
+        final double[] errors = new double[n];
+        Arrays.fill(sources, -1);
+        for (int i = 0; i < n; i++) {
+            double planePosition = sign * (sourcePositions[i] - n / 2.0) * sourceSize / n ;
+            double position = n / 2.0 + sign * (planePosition - offset) * n / size ;
+            int target = (int) Math.round(position);
+            double error = Math.abs(position - target);
+            if (target >= 0 && target < n && error <= REUSE_TOLERANCE
+                    && (sources[target] < 0 || error < errors[target])) {
+                sources[target] = i ;
+                errors[target] = error ;
+                positions[target] = position ;
+            }
+        }
+        return sources ;
+    }
+
+    private void reuseTile(FractalView source, int[] columnSources, int[] rowSources, int tile) {
+        final int startX = (tile % tileColumns) * TILE_SIZE ;
+        final int startY = (tile / tileColumns) * TILE_SIZE ;
+        final int endX = Math.min(startX + TILE_SIZE, width);
+        final int endY = Math.min(startY + TILE_SIZE, height);
+
+        final int[] rowIterations = new int[TILE_SIZE];
+        final float[] rowModuli = new float[TILE_SIZE];
+        final int[] missing = new int[TILE_SIZE];
+        final double[] missingX = new double[TILE_SIZE];
+        final double[] missingY = new double[TILE_SIZE];
+        int reused = 0 ;
+        int computed = 0 ;
+        long computedIterations = 0 ;
+        for (int y = startY; y < endY && ! cancelled; y++) {
+            final int sourceRow = rowSources[y] * width ;
+            int missingCount = 0 ;
+            for (int x = startX; x < endX; x++) {
+                final int index = y * width + x ;
+                int iterations = rowSources[y] < 0 || columnSources[x] < 0 ? UNKNOWN
+                        : source.iterationCounts[sourceRow + columnSources[x]];
+                // counts below the source's level are exact; others only if this level is no higher
+                if (iterations != UNKNOWN
+                        && (iterations < source.maxIterations || maxIterations <= source.maxIterations)) {
+                    iterationCounts[index] = Math.min(iterations, maxIterations);
+                    finalModuli[index] = source.finalModuli[sourceRow + columnSources[x]];
+                    reused++ ;
+                } else {
+                    // computed where the row and column are recorded to lie, which for reused
+                    // rows and columns is up to half a pixel from (x, y)
+                    missing[missingCount] = index ;
+                    missingX[missingCount] = columnPositions[x];
+                    missingY[missingCount] = rowPositions[y];
+                    missingCount++ ;
+                }
+            }
+            computeIterationCounts(missingX, missingY, missingCount, rowIterations, rowModuli);
+            for (int i = 0; i < missingCount; i++) {
+                iterationCounts[missing[i]] = rowIterations[i];
+                finalModuli[missing[i]] = rowModuli[i];
+            }
+            computed += missingCount ;
+            computedIterations += sum(rowIterations, missingCount);
+        }
+        reusedPixels.add(reused);
+        iteratedPixels.add(computed);
+        this.iterations.add(computedIterations);
+    }
+
+    private static long sum(int[] values, int count) {
+        long total = 0 ;
+        for (int i = 0; i < count; i++) {
+            total += values[i];
+        }
+        return total ;
+    }
+
+    /*
+     * Tile cache. The cache's tiles generally straddle the tiles of this view, so each one
+     * is copied into whichever parts of the view it overlaps. Its time is attributed to the
+     * view tile containing its first pixel in the view.
+     */
+
+    private void computeFromCache(Executor exec, int parallelizationLevel) {
+        final BigInteger tileSize = BigInteger.valueOf(TILE_SIZE);
+        final int offsetX = cacheOriginX.mod(tileSize).intValue();
+        final int offsetY = cacheOriginY.mod(tileSize).intValue();
+        final BigInteger firstTileX = cacheOriginX.subtract(BigInteger.valueOf(offsetX)).divide(tileSize);
+        final BigInteger firstTileY = cacheOriginY.subtract(BigInteger.valueOf(offsetY)).divide(tileSize);
+        final int cacheColumns = (offsetX + width + TILE_SIZE - 1) / TILE_SIZE ;
+        final int cacheRows = (offsetY + height + TILE_SIZE - 1) / TILE_SIZE ;
+        final TileCache.Key[] keys = new TileCache.Key[cacheColumns * cacheRows];
+        final TileCache.Tile[] tiles = new TileCache.Tile[cacheColumns * cacheRows];
+        final boolean progressive = renderMode == RenderMode.PROGRESSIVE ;
+
+        // a progressive view takes the tiles which are there first, and computes the rest below
+        runTiles(exec, parallelizationLevel, cacheColumns * cacheRows, cacheTile -> {
+            if (cancelled) {
+                return ;
+            }
+            long start = System.nanoTime();
+            int column = cacheTile % cacheColumns ;
+            int row = cacheTile / cacheColumns ;
+            int viewX = column * TILE_SIZE - offsetX ;
+            int viewY = row * TILE_SIZE - offsetY ;
+            TileCache.Key key = new TileCache.Key(getClass(), cacheRenderMode(), cacheLevel, maxIterations,
+                    firstTileX.add(BigInteger.valueOf(column)), firstTileY.add(BigInteger.valueOf(row)));
+            keys[cacheTile] = key ;
+            TileCache.Tile tile = tileCache.get(key);
+            if (tile == null && ! progressive) {
+                tile = computeCacheTile(key, viewX, viewY, false);
+                if (tile == null) {
+                    return ;
+                }
+                tileCache.put(key, tile);
+            }
+            if (tile != null) {
+                tiles[cacheTile] = tile ;
+                copyCacheTile(tile, viewX, viewY);
+                addCacheTileTime(viewX, viewY, start);
+            }
+        });
+        if (! progressive || cancelled) {
+            return ;
+        }
+
+        // The view tiles overlapping a missing tile are computed in the coarse passes, each
+        // of which is published as usual. These leave the even rows exact, so the missing
+        // tiles are then finished from them and cached.
+        final boolean[] coarseTiles = new boolean[tileColumns * tileRows];
+        boolean missing = false ;
+        for (int cacheTile = 0; cacheTile < tiles.length; cacheTile++) {
+            if (tiles[cacheTile] == null) {
+                missing = true ;
+                int viewX = (cacheTile % cacheColumns) * TILE_SIZE - offsetX ;
+                int viewY = (cacheTile / cacheColumns) * TILE_SIZE - offsetY ;
+                int lastColumn = (Math.min(viewX + TILE_SIZE, width) - 1) / TILE_SIZE ;
+                int lastRow = (Math.min(viewY + TILE_SIZE, height) - 1) / TILE_SIZE ;
+                for (int row = Math.max(viewY, 0) / TILE_SIZE; row <= lastRow; row++) {
+                    for (int column = Math.max(viewX, 0) / TILE_SIZE; column <= lastColumn; column++) {
+                        coarseTiles[row * tileColumns + column] = true ;
+                    }
+                }
+            }
+        }
+        if (! missing) {
+            return ;
+        }
+        for (int pass = 0; pass < PASSES - 1; pass++) {
+            final int currentPass = pass ;
+            computeTiles(exec, parallelizationLevel, tile -> {
+                if (coarseTiles[tile]) {
+                    computeTile(tile, currentPass);
                 }
             });
+            // the blocks filled by the pass may cover pixels taken from the cache
+            for (int cacheTile = 0; cacheTile < tiles.length; cacheTile++) {
+                if (tiles[cacheTile] != null) {
+                    copyCacheTile(tiles[cacheTile], (cacheTile % cacheColumns) * TILE_SIZE - offsetX,
+                            (cacheTile / cacheColumns) * TILE_SIZE - offsetY);
+                }
+            }
+            if (cancelled) {
+                return ;
+            }
+            color(exec, parallelizationLevel);
+            if (onPassCompleted != null) {
+                onPassCompleted.run();
+            }
         }
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        runTiles(exec, parallelizationLevel, cacheColumns * cacheRows, cacheTile -> {
+            if (cancelled || tiles[cacheTile] != null) {
+                return ;
+            }
+            long start = System.nanoTime();
+            int viewX = (cacheTile % cacheColumns) * TILE_SIZE - offsetX ;
+            int viewY = (cacheTile / cacheColumns) * TILE_SIZE - offsetY ;
+            TileCache.Tile tile = computeCacheTile(keys[cacheTile], viewX, viewY, true);
+            if (tile == null) {
+                return ;
+            }
+            tileCache.put(keys[cacheTile], tile);
+            copyCacheTile(tile, viewX, viewY);
+            addCacheTileTime(viewX, viewY, start);
+        });
+    }
+
+    private void addCacheTileTime(int viewX, int viewY, long start) {
+        int firstX = Math.max(viewX, 0);
+        int firstY = Math.max(viewY, 0);
+        tileTimes[(firstY / TILE_SIZE) * tileColumns + firstX / TILE_SIZE] += System.nanoTime() - start ;
+    }
+
+    // the approximate modes give different tiles, which are cached separately
+    private RenderMode cacheRenderMode() {
+        return renderMode == RenderMode.BOUNDARY_TRACING || renderMode == RenderMode.SOLID_GUESSING
+                ? renderMode : RenderMode.STANDARD ;
+    }
+
+    /**
+     * Compute a missing tile with the render mode of this view. A quarter of its pixels
+     * are taken from its parent in the cache, if that is there. If
+     * <code>fromCoarsePasses</code> is true, the even rows of the view have been computed
+     * by the coarse passes of progressive rendering, and the pixels of the tile in them
+     * are taken from the view; the rest are computed in a single pass.
+     */
+    private TileCache.Tile computeCacheTile(TileCache.Key key, int viewX, int viewY, boolean fromCoarsePasses) {
+        final int[] counts = new int[TILE_SIZE * TILE_SIZE];
+        final float[] moduli = new float[TILE_SIZE * TILE_SIZE];
+        Arrays.fill(counts, UNKNOWN);
+        final TileCache.Tile parent = tileCache.getParent(key);
+        if (parent != null) {
+            // the even pixels of this tile are the pixels of one quarter of its parent
+            final int half = TILE_SIZE / 2 ;
+            final int parentStart = (key.getTileY().testBit(0) ? half * TILE_SIZE : 0)
+                    + (key.getTileX().testBit(0) ? half : 0);
+            for (int y = 0; y < TILE_SIZE; y += 2) {
+                for (int x = 0; x < TILE_SIZE; x += 2) {
+                    int parentIndex = parentStart + (y / 2) * TILE_SIZE + x / 2 ;
+                    counts[y * TILE_SIZE + x] = parent.iterationCounts[parentIndex];
+                    moduli[y * TILE_SIZE + x] = parent.finalModuli[parentIndex];
+                }
+            }
+        }
+        if (fromCoarsePasses) {
+            final int startX = Math.max(viewX, 0);
+            final int endX = Math.min(viewX + TILE_SIZE, width);
+            for (int y = Math.max(viewY, 0); y < Math.min(viewY + TILE_SIZE, height); y++) {
+                if (y % 2 == 0) {
+                    int tileIndex = (y - viewY) * TILE_SIZE + startX - viewX ;
+                    System.arraycopy(iterationCounts, y * width + startX, counts, tileIndex, endX - startX);
+                    System.arraycopy(finalModuli, y * width + startX, moduli, tileIndex, endX - startX);
+                }
+            }
+        }
+
+        final TileCounts tileCounts = new TileCounts(counts, moduli, viewX, viewY);
+        switch (renderMode) {
+        case BOUNDARY_TRACING:
+            trace(tileCounts);
+            break ;
+        case SOLID_GUESSING:
+            guess(tileCounts);
+            break ;
+        default:
+            for (int y = 0; y < TILE_SIZE; y++) {
+                if (cancelled) {
+                    break ;
+                }
+                for (int x = 0; x < TILE_SIZE; x++) {
+                    tileCounts.request(x, y);
+                }
+                tileCounts.computeRequested();
+            }
+            tileCounts.complete();
+        }
+        // an incomplete tile must not be cached
+        return cancelled ? null : new TileCache.Tile(counts, moduli);
+    }
+
+    private void copyCacheTile(TileCache.Tile tile, int viewX, int viewY) {
+        final int startX = Math.max(viewX, 0);
+        final int endX = Math.min(viewX + TILE_SIZE, width);
+        final int startY = Math.max(viewY, 0);
+        final int endY = Math.min(viewY + TILE_SIZE, height);
+        for (int y = startY; y < endY; y++) {
+            int tileIndex = (y - viewY) * TILE_SIZE + startX - viewX ;
+            System.arraycopy(tile.iterationCounts, tileIndex, iterationCounts, y * width + startX, endX - startX);
+            System.arraycopy(tile.finalModuli, tileIndex, finalModuli, y * width + startX, endX - startX);
+        }
+    }
+
+    /*
+     * Boundary tracing and solid guessing. Both work on the iteration counts of a single
+     * tile, accessed through a TileCounts, and treat a generation of rectangles at a time:
+     * the pixels every rectangle of the generation needs are requested first and then
+     * computed together, so that the kernel can iterate them in groups.
+     */
+
+    private static final int UNKNOWN = -1 ;
+
+    // A pixel which has been requested but not yet computed
+    private static final int REQUESTED = -2 ;
+
+    // Rectangles narrower or shorter than this are iterated in full rather than subdivided
+    private static final int MIN_TRACE_SIZE = 4 ;
+
+    // Spacing of the initial grid for solid guessing
+    private static final int GUESS_GRID = 4 ;
+
+    private class TileCounts {
+        final int[] counts ;
+        final float[] moduli ;
+        // index in counts and moduli of the first pixel of the tile, and of the next row
+        final int base ;
+        final int stride ;
+        // position of the tile in this view
+        final int startX ;
+        final int startY ;
+        final int tileWidth ;
+        final int tileHeight ;
+        int iterated ;
+        long iteratedTotal ;
+
+        private int requestedCount ;
+        private int[] requested = new int[TILE_SIZE];
+        private double[] requestedX = new double[TILE_SIZE];
+        private double[] requestedY = new double[TILE_SIZE];
+        private int[] requestedIterations = new int[TILE_SIZE];
+        private float[] requestedModuli = new float[TILE_SIZE];
+
+        // a tile of this view
+        TileCounts(int tile) {
+            counts = iterationCounts ;
+            moduli = finalModuli ;
+            startX = (tile % tileColumns) * TILE_SIZE ;
+            startY = (tile / tileColumns) * TILE_SIZE ;
+            base = startY * width + startX ;
+            stride = width ;
+            tileWidth = Math.min(TILE_SIZE, width - startX);
+            tileHeight = Math.min(TILE_SIZE, height - startY);
+            for (int y = 0; y < tileHeight; y++) {
+                Arrays.fill(counts, base + y * stride, base + y * stride + tileWidth, UNKNOWN);
+            }
+        }
+
+        // a full tile at (startX, startY), which may extend outside this view, held in the
+        // given arrays; pixels which are not yet known must be UNKNOWN
+        TileCounts(int[] counts, float[] moduli, int startX, int startY) {
+            this.counts = counts ;
+            this.moduli = moduli ;
+            this.startX = startX ;
+            this.startY = startY ;
+            base = 0 ;
+            stride = TILE_SIZE ;
+            tileWidth = TILE_SIZE ;
+            tileHeight = TILE_SIZE ;
+        }
+
+        // x and y are relative to the tile; the pixel is computed by the next computeRequested()
+        void request(int x, int y) {
+            int index = base + y * stride + x ;
+            if (counts[index] == UNKNOWN) {
+                if (requestedCount == requested.length) {
+                    requested = Arrays.copyOf(requested, 2 * requestedCount);
+                    requestedX = Arrays.copyOf(requestedX, 2 * requestedCount);
+                    requestedY = Arrays.copyOf(requestedY, 2 * requestedCount);
+                    requestedIterations = new int[2 * requestedCount];
+                    requestedModuli = new float[2 * requestedCount];
+                }
+                counts[index] = REQUESTED ;
+                requested[requestedCount] = index ;
+                requestedX[requestedCount] = startX + x ;
+                requestedY[requestedCount] = startY + y ;
+                requestedCount++ ;
+            }
+        }
+
+        void computeRequested() {
+            computeIterationCounts(requestedX, requestedY, requestedCount, requestedIterations, requestedModuli);
+            for (int i = 0; i < requestedCount; i++) {
+                counts[requested[i]] = requestedIterations[i];
+                moduli[requested[i]] = requestedModuli[i];
+            }
+            iterated += requestedCount ;
+            iteratedTotal += sum(requestedIterations, requestedCount);
+            requestedCount = 0 ;
+        }
+
+        // the pixel must have been computed or filled
+        int get(int x, int y) {
+            return counts[base + y * stride + x];
+        }
+
+        // fills with the iteration count and final modulus of the computed pixel (sourceX, sourceY)
+        void fill(int x0, int y0, int x1, int y1, int sourceX, int sourceY) {
+            final int source = base + sourceY * stride + sourceX ;
+            final int value = counts[source];
+            final float modulus = moduli[source];
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    int index = base + y * stride + x ;
+                    if (counts[index] == UNKNOWN) {
+                        counts[index] = value ;
+                        moduli[index] = modulus ;
+                    }
+                }
+            }
+        }
+
+        void complete() {
+            iteratedPixels.add(iterated);
+            iterations.add(iteratedTotal);
+        }
+    }
+
+    /**
+     * Rectangles with (inclusive) corners (x0, y0) and (x1, y1), relative to a tile.
+     */
+    private static class Rectangles {
+        int count ;
+        int[] corners = new int[16];
+
+        void add(int x0, int y0, int x1, int y1) {
+            if (4 * count == corners.length) {
+                corners = Arrays.copyOf(corners, 2 * corners.length);
+            }
+            corners[4 * count] = x0 ;
+            corners[4 * count + 1] = y0 ;
+            corners[4 * count + 2] = x1 ;
+            corners[4 * count + 3] = y1 ;
+            count++ ;
+        }
+    }
+
+    private void traceTile(int tile) {
+        trace(new TileCounts(tile));
+    }
+
+    // Mariani-Silver subdivision
+    private void trace(TileCounts counts) {
+        Rectangles rectangles = new Rectangles();
+        rectangles.add(0, 0, counts.tileWidth - 1, counts.tileHeight - 1);
+        while (rectangles.count > 0) {
+            for (int r = 0; r < rectangles.count; r++) {
+                int[] c = rectangles.corners ;
+                int x0 = c[4 * r], y0 = c[4 * r + 1], x1 = c[4 * r + 2], y1 = c[4 * r + 3];
+                // side by side, so that the pixels iterated together are neighbors
+                for (int x = x0; x <= x1; x++) {
+                    counts.request(x, y0);
+                }
+                for (int x = x0; x <= x1; x++) {
+                    counts.request(x, y1);
+                }
+                for (int y = y0 + 1; y < y1; y++) {
+                    counts.request(x0, y);
+                }
+                for (int y = y0 + 1; y < y1; y++) {
+                    counts.request(x1, y);
+                }
+            }
+            counts.computeRequested();
+
+            Rectangles next = new Rectangles();
+            for (int r = 0; r < rectangles.count; r++) {
+                int[] c = rectangles.corners ;
+                traceRectangle(counts, c[4 * r], c[4 * r + 1], c[4 * r + 2], c[4 * r + 3], next);
+            }
+            // the interiors of small rectangles which were not uniform:
+            counts.computeRequested();
+            rectangles = next ;
+        }
+        counts.complete();
+    }
+
+    // Treat a rectangle whose border has been computed: fill it, iterate it, or split it into next
+    private void traceRectangle(TileCounts counts, int x0, int y0, int x1, int y1, Rectangles next) {
+        int value = counts.get(x0, y0);
+        boolean uniform = true ;
+        for (int x = x0; x <= x1; x++) {
+            uniform &= counts.get(x, y0) == value ;
+            uniform &= counts.get(x, y1) == value ;
+        }
+        for (int y = y0 + 1; y < y1; y++) {
+            uniform &= counts.get(x0, y) == value ;
+            uniform &= counts.get(x1, y) == value ;
+        }
+
+        if (uniform) {
+            counts.fill(x0 + 1, y0 + 1, x1 - 1, y1 - 1, x0, y0);
+        } else if (x1 - x0 < MIN_TRACE_SIZE || y1 - y0 < MIN_TRACE_SIZE) {
+            for (int y = y0 + 1; y < y1; y++) {
+                for (int x = x0 + 1; x < x1; x++) {
+                    counts.request(x, y);
+                }
+            }
+        } else if (x1 - x0 >= y1 - y0) {
+            int mid = (x0 + x1) / 2 ;
+            next.add(x0, y0, mid, y1);
+            next.add(mid, y0, x1, y1);
+        } else {
+            int mid = (y0 + y1) / 2 ;
+            next.add(x0, y0, x1, mid);
+            next.add(x0, mid, x1, y1);
+        }
+    }
+
+    private void guessTile(int tile) {
+        guess(new TileCounts(tile));
+    }
+
+    private void guess(TileCounts counts) {
+        int lastX = counts.tileWidth - 1 ;
+        int lastY = counts.tileHeight - 1 ;
+        Rectangles cells = new Rectangles();
+        for (int y0 = 0; y0 < lastY || y0 == 0; y0 += GUESS_GRID) {
+            int y1 = Math.min(y0 + GUESS_GRID, lastY);
+            for (int x0 = 0; x0 < lastX || x0 == 0; x0 += GUESS_GRID) {
+                int x1 = Math.min(x0 + GUESS_GRID, lastX);
+                cells.add(x0, y0, x1, y1);
+            }
+        }
+        while (cells.count > 0) {
+            for (int r = 0; r < cells.count; r++) {
+                int[] c = cells.corners ;
+                counts.request(c[4 * r], c[4 * r + 1]);
+                counts.request(c[4 * r + 2], c[4 * r + 1]);
+                counts.request(c[4 * r], c[4 * r + 3]);
+                counts.request(c[4 * r + 2], c[4 * r + 3]);
+            }
+            counts.computeRequested();
+
+            Rectangles next = new Rectangles();
+            for (int r = 0; r < cells.count; r++) {
+                int[] c = cells.corners ;
+                guessCell(counts, c[4 * r], c[4 * r + 1], c[4 * r + 2], c[4 * r + 3], next);
+            }
+            cells = next ;
+        }
+        counts.complete();
+    }
+
+    // Solid guessing in a cell whose corners have been computed: fill it, or split it into next
+    private void guessCell(TileCounts counts, int x0, int y0, int x1, int y1, Rectangles next) {
+        int value = counts.get(x0, y0);
+        int topRight = counts.get(x1, y0);
+        int bottomLeft = counts.get(x0, y1);
+        int bottomRight = counts.get(x1, y1);
+        if (topRight == value && bottomLeft == value && bottomRight == value) {
+            counts.fill(x0, y0, x1, y1, x0, y0);
+            return ;
+        }
+        if (x1 - x0 <= 1 && y1 - y0 <= 1) {
+            return ;
+        }
+        int midX = x1 - x0 > 1 ? (x0 + x1) / 2 : x1 ;
+        int midY = y1 - y0 > 1 ? (y0 + y1) / 2 : y1 ;
+        next.add(x0, y0, midX, midY);
+        if (midX < x1) {
+            next.add(midX, y0, x1, midY);
+        }
+        if (midY < y1) {
+            next.add(x0, midY, midX, y1);
+        }
+        if (midX < x1 && midY < y1) {
+            next.add(midX, midY, x1, y1);
+        }
+    }
+
+    /**
+     * Compute the iteration count for the pixel at (x, y) in the image. The coordinates
+     * are fractional for the subsamples taken by antialiasing. The default
+     * implementation maps the pixel to a point in the complex plane using the bounds
+     * of this view, and delegates to
+     * {@link #computeIterationCount(double, double, int, float[], int)}.
+     * Subclasses which need to work with more precision than the bounds provide
+     * may override this.
+     * @param moduli If the orbit escapes, <code>moduli[index]</code> receives the squared
+     * modulus of the point {@link #ESCAPE_EXTENSION} iterations past its escape
+     */
+    protected int computeIterationCount(double x, double y, float[] moduli, int index) {
+        final double cx = bounds.getMinX() + x * bounds.getWidth() / width;
+        final double cy = bounds.getMinY() + (height - y) * bounds.getHeight() / height;
+        return computeIterationCount(cx, cy, maxIterations, moduli, index);
+    }
+
+    /**
+     * Compute the iteration counts for evenly spaced pixels in a row of the image. The
+     * default implementation computes each pixel independently with
+     * {@link #computeIterationCount(double, double, float[], int)}; subclasses may override
+     * this to iterate several pixels together.
+     * @param y The row of the image
+     * @param startX The column of the first pixel
+     * @param step The number of columns between consecutive pixels
+     * @param count The number of pixels
+     * @param iterations Array whose first <code>count</code> elements receive the counts
+     * @param moduli Array whose first <code>count</code> elements receive the squared moduli
+     * of the final points of the orbits which escape
+     */
+    protected void computeIterationCounts(int y, int startX, int step, int count,
+            int[] iterations, float[] moduli) {
+        for (int i = 0; i < count; i++) {
+            iterations[i] = computeIterationCount(startX + i * step, y, moduli, i);
         }
+    }
 
+    /**
+     * Compute the iteration counts for pixels at arbitrary, possibly fractional, positions
+     * in the image. The default implementation computes each pixel independently with
+     * {@link #computeIterationCount(double, double, float[], int)}; subclasses may override
+     * this to iterate several pixels together.
+     * @param xs The x-coordinates of the pixels
+     * @param ys The y-coordinates of the pixels
+     * @param count The number of pixels
+     * @param iterations Array whose first <code>count</code> elements receive the counts
+     * @param moduli Array whose first <code>count</code> elements receive the squared moduli
+     * of the final points of the orbits which escape
+     */
+    protected void computeIterationCounts(double[] xs, double[] ys, int count,
+            int[] iterations, float[] moduli) {
+        for (int i = 0; i < count; i++) {
+            iterations[i] = computeIterationCount(xs[i], ys[i], moduli, i);
+        }
     }
 
-    private int computePixel(double cx, double cy) {
+    private int computeColor(int iterations) {
 
-        int iterations = computeIterationCount(cx, cy, maxIterations);
+        if (iterations >= maxIterations) {
+            return /* black */0xff000000;
+        }
+
+        if (equalizedIndex != null) {
+            return palette[Math.floorMod(equalizedIndex[iterations - equalizedOrigin] + paletteOffset, palette.length)];
+        }
 
-        maxComputedIterations.updateAndGet(x -> iterations < maxIterations ? Math.max(x, iterations) : x);
-        minComputedIterations.updateAndGet(x -> Math.min(x, iterations));
+        int index = maxIterations >= palette.length 
+                ? (iterations + paletteOffset) % palette.length 
+                : ((palette.length * iterations) / maxIterations + paletteOffset) % palette.length;
+
+        return palette[Math.floorMod(index, palette.length)];
+    }
+
+    /*
+     * Smooth coloring. The normalized iteration count is
+     *   n + 1 - log2(ln |z|) = n + 2 - log2(ln 2) - log2(log2 |z|^2)
+     * where |z|^2 is the squared modulus of the point at which the orbit escaped. This is
+     * only continuous for a large escape radius, while the kernels escape at |z| = 2, so
+     * they continue each escaped orbit for ESCAPE_EXTENSION more iterations, which takes
+     * |z|^2 past 2^32, and report the modulus of the point reached.
+     */
+    private static final float SMOOTH_OFFSET = (float) (2 - Math.log(Math.log(2)) / Math.log(2));
+
+    /**
+     * The number of iterations for which escaped orbits are continued before their
+     * squared modulus is reported.
+     */
+    protected static final int ESCAPE_EXTENSION = 4 ;
+
+    /**
+     * Continue the orbit of <code>z -&gt; z^2 + c</code> from (x, y) for
+     * <code>steps</code> iterations.
+     * @return The squared modulus of the point reached, limited to the range of a float.
+     */
+    protected static float extendedModulus(double x, double y, double cx, double cy, int steps) {
+        for (int i = 0; i < steps; i++) {
+            double xt = x * x - y * y + cx ;
+            y = 2 * x * y + cy ;
+            x = xt ;
+        }
+        return (float) Math.min(x * x + y * y, Float.MAX_VALUE);
+    }
+
+    private int computeSmoothColor(int iterations, float modulus) {
 
         if (iterations >= maxIterations) {
             return /* black */0xff000000;
         }
 
-        int index = maxIterations >= PALETTE.length 
-                ? iterations % PALETTE.length 
-                : (PALETTE.length * iterations) / maxIterations;
+        float smoothed = iterations + ESCAPE_EXTENSION + SMOOTH_OFFSET - FastLog.log2(FastLog.log2(modulus));
+        float position = maxIterations >= palette.length
+                ? smoothed + paletteOffset
+                : palette.length * smoothed / maxIterations + paletteOffset ;
+        int index = (int) Math.floor(position);
+        float fraction = position - index ;
+        return interpolate(palette[Math.floorMod(index, palette.length)],
+                palette[Math.floorMod(index + 1, palette.length)], fraction);
+    }
 
-        return PALETTE[index];
+    private static int interpolate(int from, int to, float fraction) {
+        int result = 0 ;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = (from >>> shift) & 0xff ;
+            int b = (to >>> shift) & 0xff ;
+            result |= ((int) (a + (b - a) * fraction + 0.5f) & 0xff) << shift ;
+        }
+        return result ;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of the per-pixel buffers used by {@link FractalView}, so that the buffers
+ * of views which have been shown and replaced are reused by the views computed after
+ * them, rather than becoming garbage with every animation frame.
+ * <p>
+ * A view takes its buffers from the pool when it is first computed, and returns them
+ * when it is disposed (see {@link FractalView#dispose()}). Buffers are only reused for
+ * views with the same number of pixels. Buffers returned when the pool is full are
+ * dropped, so the pool never holds more than its capacity however many views are
+ * outstanding; if the pool is empty, new buffers are allocated. This class is thread safe.
+ */
+public class FrameBufferPool {
+
+    private final int capacity ;
+    private final Map<Integer, Deque<Buffers>> free = new HashMap<>();
+    private int freeCount ;
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+
+    /**
+     * @param capacity The maximum number of sets of buffers held by the pool
+     */
+    public FrameBufferPool(int capacity) {
+        this.capacity = capacity ;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getFreeCount() {
+        return freeCount;
+    }
+
+    /**
+     * @return The number of sets of buffers which have been allocated because none were free.
+     */
+    public long getAllocationCount() {
+        return allocations.sum();
+    }
+
+    /**
+     * @return The number of sets of buffers which have been taken from the pool.
+     */
+    public long getReuseCount() {
+        return reuses.sum();
+    }
+
+    Buffers acquire(int size) {
+        synchronized (this) {
+            Deque<Buffers> buffers = free.get(size);
+            if (buffers != null && ! buffers.isEmpty()) {
+                freeCount-- ;
+                reuses.increment();
+                return buffers.pop();
+            }
+        }
+        allocations.increment();
+        return new Buffers(size);
+    }
+
+    synchronized void release(Buffers buffers) {
+        if (freeCount < capacity) {
+            free.computeIfAbsent(buffers.iterationCounts.length, size -> new ArrayDeque<>()).push(buffers);
+            freeCount++ ;
+        }
+    }
+
+    /**
+     * The iteration counts, final moduli and colors of the pixels of a view. The colors
+     * are triple buffered, so that a view can be shown while it is being recolored. The
+     * contents of reused buffers are left as they were; views overwrite every pixel as
+     * they are computed.
+     */
+    static final class Buffers {
+        final int[] iterationCounts ;
+        final float[] finalModuli ;
+        final TripleBuffer pixels ;
+
+        Buffers(int size) {
+            iterationCounts = new int[size];
+            finalModuli = new float[size];
+            pixels = new TripleBuffer(size);
+        }
+    }
+}
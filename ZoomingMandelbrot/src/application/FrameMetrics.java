@@ -0,0 +1,291 @@
+package application;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Per-frame measurements of the rendering pipeline, kept as histograms so that recording
+ * a frame costs a few atomic increments and allocates nothing. This class is thread safe;
+ * see {@link FrameMetricsMXBean} for what is measured.
+ */
+public class FrameMetrics implements FrameMetricsMXBean {
+
+    private final IntSupplier computationQueueDepth ;
+    private final IntSupplier viewQueueDepth ;
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder staleFrames = new LongAdder();
+
+    // times in nanoseconds, iterations as counted, rates in iterations per second,
+    // imbalance in thousandths
+    private final Histogram computeTimes = new Histogram();
+    private final Histogram iterations = new Histogram();
+    private final Histogram iterationRates = new Histogram();
+    private final Histogram tileTimes = new Histogram();
+    private final Histogram tileImbalances = new Histogram();
+    private final Histogram computationQueueTimes = new Histogram();
+    private final Histogram viewQueueTimes = new Histogram();
+    private final Histogram viewQueueBlockedTimes = new Histogram();
+
+    /**
+     * @param computationQueueDepth Supplies the number of frames waiting to be computed
+     * @param viewQueueDepth Supplies the number of frames waiting to be displayed
+     */
+    public FrameMetrics(IntSupplier computationQueueDepth, IntSupplier viewQueueDepth) {
+        this.computationQueueDepth = computationQueueDepth ;
+        this.viewQueueDepth = viewQueueDepth ;
+    }
+
+    /**
+     * Record a frame whose computation is complete.
+     * @param computeNanos The time taken by {@link FractalView#compute}
+     */
+    public void recordFrame(FractalView view, long computeNanos) {
+        frames.increment();
+        computeTimes.record(computeNanos);
+        final long frameIterations = view.getIterationCount();
+        iterations.record(frameIterations);
+        if (computeNanos > 0) {
+            iterationRates.record((long) (frameIterations * 1e9 / computeNanos));
+        }
+        for (long time : view.tileTimes()) {
+            tileTimes.record(time);
+        }
+        tileImbalances.record(Math.round(view.getTileImbalance() * 1000));
+    }
+
+    /**
+     * Record a frame abandoned because a later request made it stale.
+     */
+    public void recordStaleFrame() {
+        staleFrames.increment();
+    }
+
+    public void recordComputationQueueWait(long nanos) {
+        computationQueueTimes.record(nanos);
+    }
+
+    public void recordViewQueueWait(long nanos) {
+        viewQueueTimes.record(nanos);
+    }
+
+    public void recordViewQueueBlocked(long nanos) {
+        viewQueueBlockedTimes.record(nanos);
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frames.sum();
+    }
+
+    @Override
+    public long getStaleFrameCount() {
+        return staleFrames.sum();
+    }
+
+    @Override
+    public Distribution getComputeMillis() {
+        return computeTimes.snapshot(1e6);
+    }
+
+    @Override
+    public Distribution getMegaIterations() {
+        return iterations.snapshot(1e6);
+    }
+
+    @Override
+    public Distribution getMegaIterationsPerSecond() {
+        return iterationRates.snapshot(1e6);
+    }
+
+    @Override
+    public Distribution getTileMillis() {
+        return tileTimes.snapshot(1e6);
+    }
+
+    @Override
+    public Distribution getTileImbalance() {
+        return tileImbalances.snapshot(1e3);
+    }
+
+    @Override
+    public int getComputationQueueDepth() {
+        return computationQueueDepth.getAsInt();
+    }
+
+    @Override
+    public int getViewQueueDepth() {
+        return viewQueueDepth.getAsInt();
+    }
+
+    @Override
+    public Distribution getComputationQueueMillis() {
+        return computationQueueTimes.snapshot(1e6);
+    }
+
+    @Override
+    public Distribution getViewQueueMillis() {
+        return viewQueueTimes.snapshot(1e6);
+    }
+
+    @Override
+    public Distribution getViewQueueBlockedMillis() {
+        return viewQueueBlockedTimes.snapshot(1e6);
+    }
+
+    @Override
+    public void reset() {
+        frames.reset();
+        staleFrames.reset();
+        for (Histogram histogram : new Histogram[] {computeTimes, iterations, iterationRates, tileTimes,
+                tileImbalances, computationQueueTimes, viewQueueTimes, viewQueueBlockedTimes}) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Summary of the values recorded in a histogram, in the units of the attribute which
+     * returned it. Percentiles are accurate to within 1/16 of their value.
+     */
+    public static final class Distribution {
+        private final long count ;
+        private final double mean ;
+        private final double median ;
+        private final double percentile90 ;
+        private final double percentile99 ;
+        private final double max ;
+
+        @ConstructorProperties({"count", "mean", "median", "percentile90", "percentile99", "max"})
+        public Distribution(long count, double mean, double median, double percentile90,
+                double percentile99, double max) {
+            this.count = count ;
+            this.mean = mean ;
+            this.median = median ;
+            this.percentile90 = percentile90 ;
+            this.percentile99 = percentile99 ;
+            this.max = max ;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getMedian() {
+            return median;
+        }
+
+        public double getPercentile90() {
+            return percentile90;
+        }
+
+        public double getPercentile99() {
+            return percentile99;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count %d, mean %.3f, median %.3f, 90%% %.3f, 99%% %.3f, max %.3f",
+                    count, mean, median, percentile90, percentile99, max);
+        }
+    }
+
+    /**
+     * Histogram of non-negative values with buckets spaced logarithmically: each power of
+     * two is divided into {@link #SUB_BUCKETS} equal buckets, so every bucket is narrower
+     * than 1/16 of the values in it, and any long fits in under a thousand buckets.
+     * Values are recorded without locking; a snapshot taken while values are recorded
+     * may be off by those values.
+     */
+    private static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 4 ;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS ;
+
+        private final AtomicLongArray counts = new AtomicLongArray(bucket(Long.MAX_VALUE) + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value ;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS ;
+            return (exponent + 1) * SUB_BUCKETS + (int) ((value >>> exponent) & (SUB_BUCKETS - 1));
+        }
+
+        // the midpoint of the values in a bucket
+        private static double value(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket ;
+            }
+            final int exponent = bucket / SUB_BUCKETS - 1 ;
+            final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << exponent ;
+            return lowest + ((1L << exponent) - 1) / 2.0 ;
+        }
+
+        void record(long value) {
+            value = Math.max(value, 0);
+            counts.incrementAndGet(bucket(value));
+            count.increment();
+            total.add(value);
+            for (long current = max.get(); value > current && ! max.compareAndSet(current, value);
+                    current = max.get()) {
+                // another thread recorded a value; try again against it
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+
+        /**
+         * @param scale The number of recorded units in a unit of the snapshot
+         */
+        Distribution snapshot(double scale) {
+            final long[] buckets = new long[counts.length()];
+            long n = 0 ;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = counts.get(i);
+                n += buckets[i];
+            }
+            if (n == 0) {
+                return new Distribution(0, 0, 0, 0, 0, 0);
+            }
+            final double maxValue = max.get();
+            return new Distribution(n, total.sum() / (double) n / scale,
+                    Math.min(percentile(buckets, n, 0.5), maxValue) / scale,
+                    Math.min(percentile(buckets, n, 0.9), maxValue) / scale,
+                    Math.min(percentile(buckets, n, 0.99), maxValue) / scale,
+                    maxValue / scale);
+        }
+
+        private static double percentile(long[] buckets, long n, double fraction) {
+            final long rank = (long) Math.ceil(fraction * n);
+            long cumulative = 0 ;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i];
+                if (cumulative >= rank) {
+                    return value(i);
+                }
+            }
+            return value(buckets.length - 1);
+        }
+    }
+}
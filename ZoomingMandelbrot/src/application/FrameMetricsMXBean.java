@@ -0,0 +1,88 @@
+package application;
+
+/**
+ * Management interface of {@link FrameMetrics}, published by the {@link Model} as
+ * <code>application:type=FrameMetrics</code> so that the rendering pipeline can be
+ * watched with JConsole, VisualVM or any other JMX client.
+ * <p>
+ * Distributions cover every frame since the metrics were created or last reset.
+ * Comparing them shows where frames spend their time: long compute times with short
+ * queue waits mean the explorer is compute bound; frames waiting in the view queue
+ * while the computing thread is blocked putting into it mean it is display bound; and
+ * long waits in the computation queue with little computation mean frames are stalled
+ * behind earlier ones.
+ */
+public interface FrameMetricsMXBean {
+
+    /**
+     * @return The number of frames computed and passed on for display.
+     */
+    long getFrameCount();
+
+    /**
+     * @return The number of frames abandoned, before or during their computation, because
+     * a later request made them stale.
+     */
+    long getStaleFrameCount();
+
+    /**
+     * @return The time taken to compute each frame, in milliseconds.
+     */
+    FrameMetrics.Distribution getComputeMillis();
+
+    /**
+     * @return The sum of the iteration counts of the pixels iterated in each frame, in
+     * millions; see {@link FractalView#getIterationCount()}.
+     */
+    FrameMetrics.Distribution getMegaIterations();
+
+    /**
+     * @return The rate at which each frame was iterated, in millions of iterations per
+     * second of elapsed time.
+     */
+    FrameMetrics.Distribution getMegaIterationsPerSecond();
+
+    /**
+     * @return The time taken to compute each tile, in milliseconds.
+     */
+    FrameMetrics.Distribution getTileMillis();
+
+    /**
+     * @return The ratio of the slowest tile's time to the mean tile time in each frame;
+     * see {@link FractalView#getTileImbalance()}.
+     */
+    FrameMetrics.Distribution getTileImbalance();
+
+    /**
+     * @return The number of frames now waiting to be computed.
+     */
+    int getComputationQueueDepth();
+
+    /**
+     * @return The number of computed frames now waiting to be displayed.
+     */
+    int getViewQueueDepth();
+
+    /**
+     * @return The time each frame waited in the computation queue before its computation
+     * started, in milliseconds.
+     */
+    FrameMetrics.Distribution getComputationQueueMillis();
+
+    /**
+     * @return The time from the end of each frame's computation until it was taken for
+     * display, in milliseconds.
+     */
+    FrameMetrics.Distribution getViewQueueMillis();
+
+    /**
+     * @return The time the computing thread was blocked on each frame because the view
+     * queue was full, in milliseconds.
+     */
+    FrameMetrics.Distribution getViewQueueBlockedMillis();
+
+    /**
+     * Discard everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,166 @@
+package application;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * JuliaSetView which draws the Julia set itself, rather than its complement, by the modified
+ * inverse iteration method (MIIM). This is much less work than escape time rendering for
+ * connected Julia sets, whose interiors cost the full iteration level for every pixel,
+ * but only shows the boundary of the set, so is used for quick previews.
+ * <p>
+ * Every point of the Julia set is a limit of backward orbits under the two inverses
+ * <code>z -> &#177;&#8730;(z - c)</code>, and the tree of preimages of the repelling fixed
+ * point <code>&#946; = 1/2 + &#8730;(1/4 - c)</code> is dense in the set. The tree is explored
+ * depth first, counting the hits on the pixel of each point, and a point is not expanded
+ * once its pixel has been hit <code>maxHits</code> times. As each hit either is counted
+ * or stops a branch, the work is bounded by the number of pixels on the boundary, and
+ * parts of the set which backward orbits rarely reach are drawn as well as those they
+ * crowd into.
+ * <p>
+ * The first levels of the tree are expanded up front, and the subtrees below them are
+ * explored in parallel, all counting hits into the view's iteration count buffer.
+ * Concurrent increments of the same pixel may occasionally be lost, which only lets a
+ * pixel be hit slightly more than <code>maxHits</code> times. Pixels which are hit are
+ * colored by the number of hits, up to <code>maxHits</code>; all others are black. Points
+ * outside the view are not expanded, so the view should contain the whole Julia set, as
+ * the default bounds do for every <i>c</i> in the Mandelbrot set.
+ */
+public class InverseIterationJuliaSetView extends JuliaSetView {
+
+    // Levels of the preimage tree expanded before the subtrees are explored in parallel
+    private static final int SEED_DEPTH = 8 ;
+
+    // The number of points explored between checks for cancellation
+    private static final int CANCEL_CHECK_INTERVAL = 4096 ;
+
+    // The modulus reported for an orbit which escaped at |z| = 2, for smooth coloring
+    private static final float HIT_MODULUS = extendedModulus(2, 0, 0, 0, ESCAPE_EXTENSION);
+
+    private final int maxHits ;
+
+    public InverseIterationJuliaSetView(int width, int height, int maxHits, double cx, double cy) {
+        super(width, height, maxHits + 1, cx, cy);
+        this.maxHits = maxHits ;
+    }
+
+    public InverseIterationJuliaSetView(int width, int height, PlaneBounds bounds, int maxHits,
+            double cx, double cy) {
+        super(width, height, bounds, maxHits + 1, cx, cy);
+        this.maxHits = maxHits ;
+    }
+
+    /**
+     * @return The number of hits on a pixel after which the points in it are no longer
+     * expanded.
+     */
+    public int getMaxHits() {
+        return maxHits;
+    }
+
+    @Override
+    protected boolean computeImage(Executor exec, int parallelizationLevel,
+            int[] iterationCounts, float[] finalModuli) {
+
+        Arrays.fill(iterationCounts, 0);
+
+        // the repelling fixed point beta = 1/2 + sqrt(1/4 - c):
+        final double[] beta = new double[2];
+        sqrt(0.25 - getCx(), -getCy(), beta);
+        final double[] seedsX = {0.5 + beta[0]};
+        final double[] seedsY = {beta[1]};
+        final double[][] seeds = expand(seedsX, seedsY, SEED_DEPTH);
+
+        runTiles(exec, parallelizationLevel, seeds[0].length,
+                seed -> explore(seeds[0][seed], seeds[1][seed], iterationCounts));
+
+        // hit counts become iteration counts; pixels never hit are colored as the interior:
+        for (int i = 0; i < iterationCounts.length; i++) {
+            iterationCounts[i] = iterationCounts[i] == 0 ? getIterationLevel() : Math.min(iterationCounts[i], maxHits);
+            finalModuli[i] = HIT_MODULUS ;
+        }
+        return true ;
+    }
+
+    /**
+     * @return The x- and y-coordinates of the preimages at the given depth of the given points
+     */
+    private double[][] expand(double[] xs, double[] ys, int depth) {
+        final double[] root = new double[2];
+        for (int level = 0; level < depth; level++) {
+            double[] nextX = new double[2 * xs.length];
+            double[] nextY = new double[2 * ys.length];
+            for (int i = 0; i < xs.length; i++) {
+                sqrt(xs[i] - getCx(), ys[i] - getCy(), root);
+                nextX[2 * i] = root[0];
+                nextY[2 * i] = root[1];
+                nextX[2 * i + 1] = -root[0];
+                nextY[2 * i + 1] = -root[1];
+            }
+            xs = nextX ;
+            ys = nextY ;
+        }
+        recordIterations((1L << (depth + 1)) - 2);
+        return new double[][] {xs, ys};
+    }
+
+    /**
+     * Explore the subtree of preimages below a point, depth first.
+     */
+    private void explore(double x, double y, int[] hits) {
+        final PlaneBounds bounds = getBounds();
+        final double scaleX = getWidth() / bounds.getWidth();
+        final double scaleY = getHeight() / bounds.getHeight();
+        final double[] root = new double[2];
+
+        double[] stackX = new double[256];
+        double[] stackY = new double[256];
+        stackX[0] = x ;
+        stackY[0] = y ;
+        int size = 1 ;
+        long explored = 0 ;
+
+        while (size > 0) {
+            if (++explored % CANCEL_CHECK_INTERVAL == 0 && isCancelled()) {
+                break ;
+            }
+            size-- ;
+            final double zx = stackX[size];
+            final double zy = stackY[size];
+
+            // pixel (px, py) is centered on the point computed for it by escape time rendering
+            final int px = (int) Math.round((zx - bounds.getMinX()) * scaleX);
+            final int py = (int) Math.round(getHeight() - (zy - bounds.getMinY()) * scaleY);
+            if (px < 0 || px >= getWidth() || py < 0 || py >= getHeight()) {
+                continue ;
+            }
+            final int index = py * getWidth() + px ;
+            if (++hits[index] > maxHits) {
+                continue ;
+            }
+
+            if (size + 2 > stackX.length) {
+                stackX = Arrays.copyOf(stackX, 2 * stackX.length);
+                stackY = Arrays.copyOf(stackY, 2 * stackY.length);
+            }
+            sqrt(zx - getCx(), zy - getCy(), root);
+            stackX[size] = root[0];
+            stackY[size] = root[1];
+            stackX[size + 1] = -root[0];
+            stackY[size + 1] = -root[1];
+            size += 2 ;
+        }
+        recordIterations(explored);
+    }
+
+    /**
+     * Write the principal square root of <code>x + iy</code> to <code>result</code>.
+     */
+    private static void sqrt(double x, double y, double[] result) {
+        final double modulus = Math.sqrt(x * x + y * y);
+        final double real = Math.sqrt(0.5 * Math.max(modulus + x, 0));
+        final double imaginary = Math.sqrt(0.5 * Math.max(modulus - x, 0));
+        result[0] = real ;
+        result[1] = y < 0 ? -imaginary : imaginary ;
+    }
+}
@@ -0,0 +1,151 @@
+package application;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Computes Julia sets one at a time, always moving on to the most recent request, so that
+ * tracking the mouse stays responsive and does a bounded amount of work however fast
+ * requests arrive.
+ * <p>
+ * There is a single pending slot: a request made while another is pending replaces it,
+ * and the replaced view is never computed. A request made while a view is being computed
+ * also abandons that computation, through {@link FractalView#cancel()}, unless no view
+ * has been completed for {@link #MAX_RESULT_AGE_NANOS}; then the computation is allowed
+ * to finish, so that a continuous stream of requests still updates the display. A request
+ * for a view with fewer pixels, such as a preview, always abandons a larger one. Completed
+ * views are placed in a single result slot, to be collected with {@link #poll()}; a view
+ * completed before the last one was collected replaces it.
+ * <p>
+ * Views which are replaced or abandoned are disposed, returning their buffers to their
+ * pool. The views are computed by the thread which runs this scheduler, using the given
+ * executor; {@link #submit(JuliaSetView)} and {@link #poll()} may be called from any thread.
+ */
+public class JuliaSetScheduler implements Runnable {
+
+    // Computations are not abandoned for newer requests once the last result is this old:
+    // about two frames at 60 Hz
+    private static final long MAX_RESULT_AGE_NANOS = 33_000_000L ;
+
+    private final Executor computePool ;
+    private final int parallelizationLevel ;
+
+    private final Object lock = new Object();
+    private JuliaSetView pending ;
+    private JuliaSetView computing ;
+    private long lastCompletion = System.nanoTime();
+
+    private final AtomicReference<JuliaSetView> completed = new AtomicReference<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder replaced = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder completions = new LongAdder();
+
+    public JuliaSetScheduler(Executor computePool, int parallelizationLevel) {
+        this.computePool = computePool ;
+        this.parallelizationLevel = parallelizationLevel ;
+    }
+
+    /**
+     * Request the computation of a view, superseding any earlier request.
+     */
+    public void submit(JuliaSetView view) {
+        requests.increment();
+        synchronized (lock) {
+            if (pending != null) {
+                pending.dispose();
+                replaced.increment();
+            }
+            pending = view ;
+            if (computing != null && (pixelCount(view) < pixelCount(computing)
+                    || System.nanoTime() - lastCompletion < MAX_RESULT_AGE_NANOS)) {
+                computing.cancel();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private static long pixelCount(FractalView view) {
+        return (long) view.getWidth() * view.getHeight();
+    }
+
+    /**
+     * @return The most recently completed view, or null if none has been completed since
+     * the last call. The caller becomes responsible for disposing it.
+     */
+    public JuliaSetView poll() {
+        return completed.getAndSet(null);
+    }
+
+    /**
+     * Compute requested views until this thread is interrupted.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                JuliaSetView view ;
+                synchronized (lock) {
+                    while (pending == null) {
+                        lock.wait();
+                    }
+                    view = pending ;
+                    pending = null ;
+                    computing = view ;
+                }
+                try {
+                    view.compute(computePool, parallelizationLevel);
+                } finally {
+                    synchronized (lock) {
+                        computing = null ;
+                        if (! view.isCancelled()) {
+                            lastCompletion = System.nanoTime();
+                        }
+                    }
+                }
+                if (view.isCancelled()) {
+                    view.dispose();
+                    abandoned.increment();
+                } else {
+                    completions.increment();
+                    JuliaSetView uncollected = completed.getAndSet(view);
+                    if (uncollected != null) {
+                        uncollected.dispose();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The number of requests submitted.
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return The number of requests replaced by later ones before they were started.
+     */
+    public long getReplacedCount() {
+        return replaced.sum();
+    }
+
+    /**
+     * @return The number of computations abandoned for later requests.
+     */
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    /**
+     * @return The number of views completed.
+     */
+    public long getCompletedCount() {
+        return completions.sum();
+    }
+}
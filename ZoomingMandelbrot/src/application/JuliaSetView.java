@@ -1,18 +1,20 @@
 package application;
 
-import javafx.geometry.BoundingBox;
-import javafx.geometry.Bounds;
-
 public class JuliaSetView extends FractalView {
 
     private final double cx;
     private final double cy;
 
-    private static final Bounds BOUNDS = new BoundingBox(-2, -2, 4, 4);
+    private static final PlaneBounds BOUNDS = new PlaneBounds(-2, -2, 4, 4);
 
     public JuliaSetView(int width, int height, int maxIterations,
             double cx, double cy) {
-        super(width, height, BOUNDS, maxIterations);
+        this(width, height, BOUNDS, maxIterations, cx, cy);
+    }
+
+    public JuliaSetView(int width, int height, PlaneBounds bounds, int maxIterations,
+            double cx, double cy) {
+        super(width, height, bounds, maxIterations);
         this.cx = cx;
         this.cy = cy;
     }
@@ -26,17 +28,38 @@ public class JuliaSetView extends FractalView {
     }
 
     @Override
-    protected int computeIterationCount(double x, double y, int maxIterations) {
+    protected int computeIterationCount(double x, double y, int maxIterations,
+            float[] moduli, int index) {
         int iterations = 0;
         double x2 = x * x;
         double y2 = y * y;
+
+        // Brent's periodicity check: compare against a point saved after 1, 2, 4, ... steps
+        final double epsilon = getPeriodicityEpsilon();
+        double savedX = x;
+        double savedY = y;
+        int steps = 0;
+        int checkInterval = 1;
+
         while (x2 + y2 < 4 && iterations < maxIterations) {
             y = 2 * x * y + cy;
             x = x2 - y2 + cx;
             x2 = x * x;
             y2 = y * y;
             iterations++;
+
+            if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+                recordPeriodicPixels(1);
+                return maxIterations;
+            }
+            if (++steps == checkInterval) {
+                steps = 0;
+                checkInterval *= 2;
+                savedX = x;
+                savedY = y;
+            }
         }
+        moduli[index] = extendedModulus(x, y, cx, cy, ESCAPE_EXTENSION);
         return iterations;
     }
 
@@ -0,0 +1,56 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * JuliaSetView which iterates each row segment of the image in groups of pixels using the
+ * {@link LaneKernel}.
+ */
+public class LaneJuliaSetView extends JuliaSetView {
+
+    public LaneJuliaSetView(int width, int height, int maxIterations,
+            double cx, double cy) {
+        super(width, height, maxIterations, cx, cy);
+    }
+
+    public LaneJuliaSetView(int width, int height, PlaneBounds bounds, int maxIterations,
+            double cx, double cy) {
+        super(width, height, bounds, maxIterations, cx, cy);
+    }
+
+    @Override
+    protected void computeIterationCounts(int y, int startX, int step, int count,
+            int[] iterations, float[] moduli) {
+        final double zy0 = getBounds().getMinY() + (getHeight() - y) * getBounds().getHeight() / getHeight();
+
+        final double[][] scratch = LaneKernel.scratch(count);
+        for (int i = 0; i < count; i++) {
+            scratch[0][i] = getBounds().getMinX() + (startX + i * step) * getBounds().getWidth() / getWidth();
+            scratch[1][i] = zy0 ;
+        }
+        iterate(scratch, count, iterations, moduli);
+    }
+
+    @Override
+    protected void computeIterationCounts(double[] xs, double[] ys, int count,
+            int[] iterations, float[] moduli) {
+        final double[][] scratch = LaneKernel.scratch(count);
+        for (int i = 0; i < count; i++) {
+            scratch[0][i] = getBounds().getMinX() + xs[i] * getBounds().getWidth() / getWidth();
+            scratch[1][i] = getBounds().getMinY() + (getHeight() - ys[i]) * getBounds().getHeight() / getHeight();
+        }
+        iterate(scratch, count, iterations, moduli);
+    }
+
+    /**
+     * Iterate the points whose starting values are in the first two scratch arrays.
+     */
+    private void iterate(double[][] scratch, int count, int[] iterations, float[] moduli) {
+        Arrays.fill(scratch[2], 0, count, getCx());
+        Arrays.fill(scratch[3], 0, count, getCy());
+        Arrays.fill(iterations, 0, count, 0);
+
+        recordPeriodicPixels(LaneKernel.iterate(scratch[0], scratch[1], scratch[2], scratch[3], iterations, moduli,
+                count, getIterationLevel(), getPeriodicityEpsilon()));
+    }
+}
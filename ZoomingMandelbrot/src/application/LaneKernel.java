@@ -0,0 +1,144 @@
+package application;
+
+/**
+ * Escape time iteration of <code>z -&gt; z^2 + c</code> for several points at once.
+ * <p>
+ * Points are processed in groups of {@link #LANES}, stepping every lane of a group
+ * together. The lanes are written out as independent straight-line code, so the
+ * processor can overlap their floating point latencies instead of waiting on the
+ * single dependency chain of the scalar loop. Lanes which have escaped are masked
+ * out: their values and counts are frozen while the remaining lanes continue, and
+ * the group finishes when every lane is done.
+ * <p>
+ * Lanes are also checked for periodicity using Brent's method: each lane's orbit is
+ * compared with a saved point, which is refreshed after 1, 2, 4, 8, ... steps. A lane
+ * whose orbit returns to within epsilon of its saved point has converged to a cycle,
+ * so it will never escape and is finished at <code>maxIterations</code>. The schedule
+ * is shared by all lanes of a group, which Brent's method allows since it may start
+ * from any point of the orbit.
+ */
+final class LaneKernel {
+
+    // The lanes are unrolled by hand below, so this cannot be changed on its own
+    static final int LANES = 4 ;
+
+    // Scratch arrays for each thread, so that iterating a row segment allocates nothing
+    private static final ThreadLocal<double[][]> SCRATCH =
+            ThreadLocal.withInitial(() -> new double[4][FractalView.TILE_SIZE]);
+
+    private LaneKernel() {}
+
+    /**
+     * @return Four arrays of at least <code>count</code> elements, for the starting
+     * values and constants of a call to {@link #iterate}. The arrays belong to the calling
+     * thread and are reused by its next call, so they must not be retained.
+     */
+    static double[][] scratch(int count) {
+        double[][] scratch = SCRATCH.get();
+        if (scratch[0].length < count) {
+            scratch = new double[4][count];
+            SCRATCH.set(scratch);
+        }
+        return scratch ;
+    }
+
+    /**
+     * Iterate <code>count</code> points in place. On entry <code>zx, zy</code> hold the
+     * starting values of each orbit, <code>cx, cy</code> the constant, and
+     * <code>iterations</code> the starting iteration count; points whose count is
+     * already at least <code>maxIterations</code> are left alone. On exit
+     * <code>iterations</code> holds the count at which each orbit escaped, or
+     * <code>maxIterations</code>, and <code>moduli</code> the squared modulus of the
+     * point {@link FractalView#ESCAPE_EXTENSION} iterations past the escape of each orbit
+     * which escaped.
+     * @return The number of points found to be periodic.
+     */
+    static int iterate(double[] zx, double[] zy, double[] cx, double[] cy,
+            int[] iterations, float[] moduli, int count, int maxIterations, double epsilon) {
+
+        int periodic = 0 ;
+
+        for (int start = 0; start < count; start += LANES) {
+            final int lanes = Math.min(LANES, count - start);
+
+            // unused lanes in the last group start out escaped:
+            double x0 = zx[start], y0 = zy[start], a0 = cx[start], b0 = cy[start];
+            double x1 = lanes > 1 ? zx[start + 1] : 2, y1 = lanes > 1 ? zy[start + 1] : 2 ;
+            double a1 = lanes > 1 ? cx[start + 1] : 0, b1 = lanes > 1 ? cy[start + 1] : 0 ;
+            double x2 = lanes > 2 ? zx[start + 2] : 2, y2 = lanes > 2 ? zy[start + 2] : 2 ;
+            double a2 = lanes > 2 ? cx[start + 2] : 0, b2 = lanes > 2 ? cy[start + 2] : 0 ;
+            double x3 = lanes > 3 ? zx[start + 3] : 2, y3 = lanes > 3 ? zy[start + 3] : 2 ;
+            double a3 = lanes > 3 ? cx[start + 3] : 0, b3 = lanes > 3 ? cy[start + 3] : 0 ;
+
+            int n0 = iterations[start];
+            int n1 = lanes > 1 ? iterations[start + 1] : maxIterations ;
+            int n2 = lanes > 2 ? iterations[start + 2] : maxIterations ;
+            int n3 = lanes > 3 ? iterations[start + 3] : maxIterations ;
+
+            boolean active0 = n0 < maxIterations ;
+            boolean active1 = n1 < maxIterations ;
+            boolean active2 = n2 < maxIterations ;
+            boolean active3 = n3 < maxIterations ;
+
+            double sx0 = x0, sy0 = y0, sx1 = x1, sy1 = y1 ;
+            double sx2 = x2, sy2 = y2, sx3 = x3, sy3 = y3 ;
+            int steps = 0 ;
+            int checkInterval = 1 ;
+
+            while (active0 | active1 | active2 | active3) {
+                double xx0 = x0 * x0, yy0 = y0 * y0 ;
+                double xx1 = x1 * x1, yy1 = y1 * y1 ;
+                double xx2 = x2 * x2, yy2 = y2 * y2 ;
+                double xx3 = x3 * x3, yy3 = y3 * y3 ;
+
+                active0 &= xx0 + yy0 < 4 && n0 < maxIterations ;
+                active1 &= xx1 + yy1 < 4 && n1 < maxIterations ;
+                active2 &= xx2 + yy2 < 4 && n2 < maxIterations ;
+                active3 &= xx3 + yy3 < 4 && n3 < maxIterations ;
+
+                double nx0 = xx0 - yy0 + a0, ny0 = 2 * x0 * y0 + b0 ;
+                double nx1 = xx1 - yy1 + a1, ny1 = 2 * x1 * y1 + b1 ;
+                double nx2 = xx2 - yy2 + a2, ny2 = 2 * x2 * y2 + b2 ;
+                double nx3 = xx3 - yy3 + a3, ny3 = 2 * x3 * y3 + b3 ;
+
+                if (active0) { x0 = nx0 ; y0 = ny0 ; n0++ ; }
+                if (active1) { x1 = nx1 ; y1 = ny1 ; n1++ ; }
+                if (active2) { x2 = nx2 ; y2 = ny2 ; n2++ ; }
+                if (active3) { x3 = nx3 ; y3 = ny3 ; n3++ ; }
+
+                if (active0 && Math.abs(x0 - sx0) < epsilon && Math.abs(y0 - sy0) < epsilon) {
+                    n0 = maxIterations ; active0 = false ; periodic++ ;
+                }
+                if (active1 && Math.abs(x1 - sx1) < epsilon && Math.abs(y1 - sy1) < epsilon) {
+                    n1 = maxIterations ; active1 = false ; periodic++ ;
+                }
+                if (active2 && Math.abs(x2 - sx2) < epsilon && Math.abs(y2 - sy2) < epsilon) {
+                    n2 = maxIterations ; active2 = false ; periodic++ ;
+                }
+                if (active3 && Math.abs(x3 - sx3) < epsilon && Math.abs(y3 - sy3) < epsilon) {
+                    n3 = maxIterations ; active3 = false ; periodic++ ;
+                }
+
+                if (++steps == checkInterval) {
+                    steps = 0 ;
+                    checkInterval *= 2 ;
+                    sx0 = x0 ; sy0 = y0 ; sx1 = x1 ; sy1 = y1 ;
+                    sx2 = x2 ; sy2 = y2 ; sx3 = x3 ; sy3 = y3 ;
+                }
+            }
+
+            iterations[start] = n0 ;
+            if (lanes > 1) iterations[start + 1] = n1 ;
+            if (lanes > 2) iterations[start + 2] = n2 ;
+            if (lanes > 3) iterations[start + 3] = n3 ;
+
+            // escaped lanes were frozen at their final point:
+            final int extension = FractalView.ESCAPE_EXTENSION ;
+            moduli[start] = FractalView.extendedModulus(x0, y0, a0, b0, extension) ;
+            if (lanes > 1) moduli[start + 1] = FractalView.extendedModulus(x1, y1, a1, b1, extension) ;
+            if (lanes > 2) moduli[start + 2] = FractalView.extendedModulus(x2, y2, a2, b2, extension) ;
+            if (lanes > 3) moduli[start + 3] = FractalView.extendedModulus(x3, y3, a3, b3, extension) ;
+        }
+        return periodic ;
+    }
+}
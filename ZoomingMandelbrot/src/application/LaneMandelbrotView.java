@@ -0,0 +1,64 @@
+package application;
+
+import java.math.BigDecimal;
+
+/**
+ * MandelbrotView in double precision which iterates each row segment of the image in
+ * groups of pixels using the {@link LaneKernel}.
+ */
+public class LaneMandelbrotView extends MandelbrotView {
+
+    public LaneMandelbrotView(int width, int height, BigDecimal centerX, BigDecimal centerY,
+            double viewWidth, double viewHeight, int maxIterations) {
+        super(width, height, centerX, centerY, viewWidth, viewHeight, maxIterations);
+    }
+
+    @Override
+    protected void computeIterationCounts(int y, int startX, int step, int count,
+            int[] iterations, float[] moduli) {
+        final double cy = getBounds().getMinY() + (getHeight() - y) * getBounds().getHeight() / getHeight();
+
+        final double[][] scratch = LaneKernel.scratch(count);
+        for (int i = 0; i < count; i++) {
+            scratch[2][i] = getBounds().getMinX() + (startX + i * step) * getBounds().getWidth() / getWidth();
+            scratch[3][i] = cy ;
+        }
+        iterate(scratch, count, iterations, moduli);
+    }
+
+    @Override
+    protected void computeIterationCounts(double[] xs, double[] ys, int count,
+            int[] iterations, float[] moduli) {
+        final double[][] scratch = LaneKernel.scratch(count);
+        for (int i = 0; i < count; i++) {
+            scratch[2][i] = getBounds().getMinX() + xs[i] * getBounds().getWidth() / getWidth();
+            scratch[3][i] = getBounds().getMinY() + (getHeight() - ys[i]) * getBounds().getHeight() / getHeight();
+        }
+        iterate(scratch, count, iterations, moduli);
+    }
+
+    /**
+     * Iterate the points whose constants are in the last two scratch arrays.
+     */
+    private void iterate(double[][] scratch, int count, int[] iterations, float[] moduli) {
+        final int maxIterations = getIterationLevel();
+        final double[] zx = scratch[0];
+        final double[] zy = scratch[1];
+        final double[] cx = scratch[2];
+        final double[] cy = scratch[3];
+
+        for (int i = 0; i < count; i++) {
+            zx[i] = cx[i];
+            zy[i] = cy[i];
+            // the scalar kernel counts z1 = c as an iteration only if it has not escaped:
+            if (isInMainCardioidOrBulb(cx[i], cy[i])) {
+                iterations[i] = maxIterations ;
+            } else {
+                iterations[i] = cx[i] * cx[i] + cy[i] * cy[i] < 4 ? 1 : 0 ;
+            }
+        }
+
+        recordPeriodicPixels(LaneKernel.iterate(zx, zy, cx, cy, iterations, moduli, count, maxIterations,
+                getPeriodicityEpsilon()));
+    }
+}
@@ -9,7 +9,9 @@ import static javafx.scene.input.KeyCode.Z;
 import static javafx.scene.input.KeyCombination.SHIFT_DOWN;
 import static javafx.scene.input.KeyCombination.SHORTCUT_DOWN;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
@@ -36,6 +38,16 @@ public class Main extends Application {
         
         model.setErrorHandler((message, exception) -> 
             new ErrorDialog(message, exception, primaryStage).show());
+
+        // the store maps a large file, so it is only used when a directory is given for it
+        String tileStore = System.getProperty("mandelbrot.tileStore");
+        if (tileStore != null && model.isTileCaching()) {
+            try {
+                model.openTileStore(Paths.get(tileStore));
+            } catch (IOException e) {
+                model.errorOccurred("Could not open the tile store", e);
+            }
+        }
         
         Callback<Class<?>, Object> controllerFactory = type -> {
             try {
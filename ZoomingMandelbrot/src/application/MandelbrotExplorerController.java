@@ -1,21 +1,23 @@
 package application;
 
 import javafx.animation.AnimationTimer;
-import javafx.application.Platform;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.fxml.FXML;
-import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.ContextMenuEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.shape.Rectangle;
 import javafx.stage.Window;
+import javafx.util.Duration;
 
 public class MandelbrotExplorerController {
     @FXML
@@ -37,28 +39,33 @@ public class MandelbrotExplorerController {
     @FXML
     private ActionController contextMenuController;
 
+    // Time the pointer must rest before the tracked Julia set is computed in full
+    private static final Duration JULIA_REFINEMENT_DELAY = Duration.millis(150);
+
     private final Model model;
 
     private final ObjectProperty<Point2D> mouseDown = new SimpleObjectProperty<>();
 
+    // The views compute into plain pixel arrays; these images show their contents, and are
+    // updated once per pulse, by the animation timer, with the view and version last shown
+    private final WritableImage mandelbrotImage = new WritableImage(Model.VIEW_WIDTH, Model.VIEW_HEIGHT);
+    private final WritableImage juliaImage = new WritableImage(Model.VIEW_WIDTH, Model.VIEW_HEIGHT);
+    private final WritableImage juliaPreviewImage = new WritableImage(
+            Model.VIEW_WIDTH / Model.JULIA_PREVIEW_SCALE, Model.VIEW_HEIGHT / Model.JULIA_PREVIEW_SCALE);
+    private FractalView shownMandelbrot ;
+    private long shownMandelbrotVersion ;
+    private FractalView shownJuliaSet ;
+    private long shownJuliaSetVersion ;
+
     public MandelbrotExplorerController(Model model) {
         this.model = model;
     }
 
     @FXML
     private void initialize() {
-        model.currentMandelbrotProperty().addListener(
-                (obs, oldMandelbrot, newMandelbrot) -> mandelbrotView
-                        .setImage(newMandelbrot.getImage()));
-        mandelbrotView.disableProperty()
-                .bind(model.zoomingInProgressProperty());
-        
-        model.currentJuliaSetProperty().addListener((obs, oldJuliaSet, newJuliaSet) -> {
-            if (newJuliaSet != null) {
-                juliaView.setImage(newJuliaSet.getImage());
-            }
-        });
-        
+        mandelbrotView.setImage(mandelbrotImage);
+        juliaView.setImage(juliaImage);
+
         setUpContextMenu();
 
         setUpJuliaSetTracking();
@@ -144,23 +151,30 @@ public class MandelbrotExplorerController {
         dragRect.visibleProperty().bind(mouseDown.isNotNull());
     }
 
+    /**
+     * Request a preview of the Julia set for every mouse position, and the full Julia set
+     * once the pointer has rested for {@link #JULIA_REFINEMENT_DELAY}; the model computes
+     * only the latest request, and the animation timer shows each Julia set as it is
+     * completed.
+     */
     private void setUpJuliaSetTracking() {
         
-        class Flag { boolean status ; }
-        Flag juliaComputing = new Flag();
+        PauseTransition refinement = new PauseTransition(JULIA_REFINEMENT_DELAY);
 
         mandelbrotView.setOnMouseMoved(e -> {
-            if (model.isTrackingJuliaSet() && ! juliaComputing.status) {
+            if (model.isTrackingJuliaSet()) {
                 
-                Bounds bounds = model.getCurrentMandelbrot().getBounds();
+                PlaneBounds bounds = model.getCurrentMandelbrot().getBounds();
                 final double cx = bounds.getWidth() * e.getX() / Model.VIEW_WIDTH + bounds.getMinX();
                 final double cy = bounds.getHeight() * (1 - e.getY() / Model.VIEW_HEIGHT) + bounds.getMinY();
                 
-                model.computeJuliaSet(cx, cy, 50,
-                    juliaSet -> Platform.runLater(() -> {
-                        model.setJuliaSet(juliaSet);
-                        juliaComputing.status = false ;
-                    }));
+                model.requestJuliaSetPreview(cx, cy);
+                refinement.setOnFinished(event -> {
+                    if (model.isTrackingJuliaSet()) {
+                        model.requestJuliaSet(cx, cy, model.estimateJuliaIterationLevel(cx, cy));
+                    }
+                });
+                refinement.playFromStart();
             }
         });
     }
@@ -174,13 +188,57 @@ public class MandelbrotExplorerController {
                 if (mandelbrot != null) {
                     model.setFrameCount(model.getFrameCount() + 1);
                     model.setCurrentMandelbrot(mandelbrot);
+                } else {
+                    MandelbrotView partial = model.pollPartialView();
+                    if (partial != null) {
+                        model.setCurrentMandelbrot(partial);
+                    }
                 }
+                JuliaSetView juliaSet = model.pollJuliaSet();
+                if (juliaSet != null) {
+                    model.setJuliaSet(juliaSet);
+                }
+                refreshImages();
             }
         };
 
         viewUpdater.start();
     }
 
+    /**
+     * Copy the pixels of the current views to the displayed images if the views have
+     * changed, or been recolored, since they were last copied. The views publish each
+     * coloring to a triple buffer, so this never waits for, or sees a partial frame from,
+     * a coloring in progress.
+     */
+    private void refreshImages() {
+        FractalView mandelbrot = model.getCurrentMandelbrot();
+        if (mandelbrot != null && (mandelbrot != shownMandelbrot
+                || mandelbrot.getImageVersion() != shownMandelbrotVersion)) {
+            shownMandelbrot = mandelbrot ;
+            shownMandelbrotVersion = copyPixels(mandelbrot, mandelbrotImage);
+        }
+        FractalView juliaSet = model.getCurrentJuliaSet();
+        if (juliaSet != null && (juliaSet != shownJuliaSet
+                || juliaSet.getImageVersion() != shownJuliaSetVersion)) {
+            // previews are scaled up to the size of the full view by the image view
+            WritableImage image = juliaSet.getWidth() == Model.VIEW_WIDTH ? juliaImage : juliaPreviewImage ;
+            shownJuliaSet = juliaSet ;
+            shownJuliaSetVersion = copyPixels(juliaSet, image);
+            juliaView.setImage(image);
+        }
+    }
+
+    /**
+     * @return The version of the view's pixels which was copied
+     */
+    private static long copyPixels(FractalView view, WritableImage image) {
+        long version = view.getImageVersion();
+        image.getPixelWriter().setPixels(0, 0, view.getWidth(), view.getHeight(),
+                PixelFormat.getIntArgbInstance(), view.getPixels(), 0, view.getWidth());
+        return version ;
+    }
+
     void saveMandelbrotImage(Scene scene) {
         contextMenuController.saveMandelbrotImage(scene);
     }
@@ -1,53 +1,203 @@
 package application;
 
-import javafx.geometry.Bounds;
+import java.math.BigDecimal;
 
 public class MandelbrotView extends FractalView {
 
-    public MandelbrotView(int width, int height, Bounds bounds,
+    // Leave double precision when pixels are fewer than this many ulps of the center apart
+    private static final double PRECISION_THRESHOLD_ULPS = 256 ;
+
+    // Ratio of the resolution of double-double arithmetic to that of doubles (2^-53)
+    private static final double DOUBLE_DOUBLE_RESOLUTION = 0x1.0p-53 ;
+
+    // Pixels closer together than this many ulps of the center cannot be told apart by
+    // the cardioid and bulb test
+    private static final double CARDIOID_TEST_ULPS = 16 ;
+
+    private final BigDecimal centerX;
+    private final BigDecimal centerY;
+
+    public MandelbrotView(int width, int height, PlaneBounds bounds,
             int maxIterations) {
-        super(width, height, bounds, maxIterations);
+        this(width, height,
+                new BigDecimal(bounds.getMinX() + bounds.getWidth() / 2),
+                new BigDecimal(bounds.getMinY() + bounds.getHeight() / 2),
+                bounds.getWidth(), bounds.getHeight(), maxIterations);
     }
 
-    @Override
-    protected int computeIterationCount(double cx, double cy, int maxIterations) {
-        
-        // TODO: figure approximate bounds for the fixed point cardioid and period 2 bulb
-        // and avoid these moderately expensive tests if possible
-        
-        // period 2 bulb:
-        
-        if ((1+cx)*(1+cx)+cy*cy < 0.0625) {
-            return maxIterations ;
+    /**
+     * Create a MandelbrotView centered on a point given to arbitrary precision.
+     * The bounds of the view are the nearest representation in doubles; kernels
+     * which can resolve detail finer than double precision should use the
+     * center coordinates directly.
+     */
+    public MandelbrotView(int width, int height, BigDecimal centerX, BigDecimal centerY,
+            double viewWidth, double viewHeight, int maxIterations) {
+        super(width, height,
+                new PlaneBounds(centerX.doubleValue() - viewWidth / 2,
+                        centerY.doubleValue() - viewHeight / 2, viewWidth, viewHeight),
+                maxIterations);
+        this.centerX = centerX;
+        this.centerY = centerY;
+    }
+
+    /**
+     * Create a MandelbrotView with a kernel appropriate to the zoom level. Plain double
+     * precision (using the lane kernel, if requested) is used until the spacing between pixels
+     * approaches the resolution of doubles at the center point. Double-double arithmetic is
+     * used from there until its resolution is approached in turn, after which the
+     * perturbation kernel is used.
+     */
+    public static MandelbrotView create(int width, int height, BigDecimal centerX, BigDecimal centerY,
+            double viewWidth, double viewHeight, int maxIterations, boolean laneKernel) {
+
+        double pixelSize = Math.min(viewWidth / width, viewHeight / height);
+        double ulp = Math.max(Math.ulp(centerX.doubleValue()), Math.ulp(centerY.doubleValue()));
+
+        if (pixelSize < PRECISION_THRESHOLD_ULPS * ulp * DOUBLE_DOUBLE_RESOLUTION) {
+            return new PerturbationMandelbrotView(width, height,
+                    centerX, centerY, viewWidth, viewHeight, maxIterations);
+        } else if (pixelSize < PRECISION_THRESHOLD_ULPS * ulp) {
+            return new DoubleDoubleMandelbrotView(width, height,
+                    centerX, centerY, viewWidth, viewHeight, maxIterations);
+        } else if (laneKernel) {
+            return new LaneMandelbrotView(width, height,
+                    centerX, centerY, viewWidth, viewHeight, maxIterations);
+        } else {
+            return new MandelbrotView(width, height,
+                    centerX, centerY, viewWidth, viewHeight, maxIterations);
         }
-        
-        // fixed point cardiod:
-        
-        double kx = 1 - 4 * cx ;
-        double ky = -4 * cy ;
-        double r = Math.sqrt(kx * kx + ky * ky) ;
-        double cosTheta = kx / r ;
-        if ( r < 2 + 2 * cosTheta) {
+    }
+
+    public BigDecimal getCenterX() {
+        return centerX;
+    }
+
+    public BigDecimal getCenterY() {
+        return centerY;
+    }
+
+    @Override
+    protected int computeIterationCount(double cx, double cy, int maxIterations,
+            float[] moduli, int index) {
+
+        if (isInMainCardioidOrBulb(cx, cy)) {
             return maxIterations ;
         }
-        
+
         double x = cx;
         double y = cy;
-        
+
         double x2 = x * x;
         double y2 = y * y;
 
         int iterations = 0;
 
+        // Brent's periodicity check: compare against a point saved after 1, 2, 4, ... steps
+        final double epsilon = getPeriodicityEpsilon();
+        double savedX = x;
+        double savedY = y;
+        int steps = 0;
+        int checkInterval = 1;
+
         while (x2 + y2 < 4 && iterations < maxIterations) {
             x2 = x * x;
             y2 = y * y;
             y = 2 * x * y + cy;
             x = x2 - y2 + cx;
             iterations++;
+
+            if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+                recordPeriodicPixels(1);
+                return maxIterations;
+            }
+            if (++steps == checkInterval) {
+                steps = 0;
+                checkInterval *= 2;
+                savedX = x;
+                savedY = y;
+            }
         }
 
+        // unless c itself escaped, (x, y) is one iteration past the point whose modulus was tested
+        moduli[index] = extendedModulus(x, y, cx, cy, iterations == 0 ? ESCAPE_EXTENSION : ESCAPE_EXTENSION - 1);
+        return iterations;
+    }
+
+    /**
+     * @return The number of iterations after which the orbit of 0 under
+     * <code>z -> z^2 + c</code> escapes, or <code>maxIterations</code> if it does not
+     * escape within that many iterations.
+     */
+    public static int escapeCount(double cx, double cy, int maxIterations) {
+        if (isInMainCardioidOrBulb(cx, cy)) {
+            return maxIterations ;
+        }
+        double x = cx;
+        double y = cy;
+        int iterations = 0;
+        while (x * x + y * y < 4 && iterations < maxIterations) {
+            double xt = x * x - y * y + cx;
+            y = 2 * x * y + cy;
+            x = xt;
+            iterations++;
+        }
         return iterations;
     }
 
+    /**
+     * @return True if the pixels of this view are far enough apart, relative to the
+     * precision of doubles at its center, for
+     * {@link #isInMainCardioidOrBulb(double, double)} to tell neighboring pixels apart.
+     * Deeper views should use {@link #isViewInMainCardioidOrBulb()} instead.
+     */
+    protected boolean canTestPixelsForCardioidOrBulb() {
+        double pixelSize = Math.min(getBounds().getWidth() / getWidth(), getBounds().getHeight() / getHeight());
+        return pixelSize > CARDIOID_TEST_ULPS * centerUlp();
+    }
+
+    /**
+     * @return True if the whole of this view lies in the main cardioid or the period 2
+     * bulb. The test is made at eight points around the center, at twice the distance of
+     * the corners, or at a distance doubles can resolve if that is further, so it holds
+     * at any depth.
+     */
+    protected boolean isViewInMainCardioidOrBulb() {
+        final double x = centerX.doubleValue();
+        final double y = centerY.doubleValue();
+        final double radius = Math.max(Math.hypot(getBounds().getWidth(), getBounds().getHeight()),
+                CARDIOID_TEST_ULPS * centerUlp());
+        for (int i = 0; i < 8; i++) {
+            double angle = i * Math.PI / 4 ;
+            if (! isInMainCardioidOrBulb(x + radius * Math.cos(angle), y + radius * Math.sin(angle))) {
+                return false ;
+            }
+        }
+        return true ;
+    }
+
+    private double centerUlp() {
+        return Math.max(Math.ulp(centerX.doubleValue()), Math.ulp(centerY.doubleValue()));
+    }
+
+    protected static boolean isInMainCardioidOrBulb(double cx, double cy) {
+
+        // TODO: figure approximate bounds for the fixed point cardioid and period 2 bulb
+        // and avoid these moderately expensive tests if possible
+
+        // period 2 bulb:
+
+        if ((1+cx)*(1+cx)+cy*cy < 0.0625) {
+            return true ;
+        }
+
+        // fixed point cardiod:
+
+        double kx = 1 - 4 * cx ;
+        double ky = -4 * cy ;
+        double r = Math.sqrt(kx * kx + ky * ky) ;
+        double cosTheta = kx / r ;
+        return r < 2 + 2 * cosTheta ;
+    }
+
 }
@@ -1,15 +1,30 @@
 package application;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
-import java.util.function.Consumer;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
@@ -20,14 +35,13 @@ import javafx.beans.property.ReadOnlyIntegerWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.geometry.BoundingBox;
-import javafx.geometry.Bounds;
 
 /**
  * Model class for the Mandelbrot explorer. This class is single-threaded: unless otherwise noted
  * all methods in this class should be executed on a single thread, or external synchronization should
  * be applied. The exceptions to this rule are the methods <code>getViewQueue</code>,  
- * <code>computeJuliaSet</code>, <code>reset</code>, and <code>shutdown</code>.
+ * <code>requestJuliaSet</code>, <code>requestJuliaSetPreview</code>, <code>pollJuliaSet</code>,
+ * <code>reset</code>, and <code>shutdown</code>.
  */
 public class Model {
     public static final double ZOOM_FACTOR = 4.0;
@@ -36,6 +50,38 @@ public class Model {
 
     public static final int ANIMATION_FRAMES = 15;
 
+    // Julia set previews have 1/JULIA_PREVIEW_SCALE the resolution of the view in each direction
+    public static final int JULIA_PREVIEW_SCALE = 4 ;
+
+    private static final int MIN_JULIA_ITERATIONS = 250 ;
+    private static final int MAX_JULIA_ITERATIONS = 10_000 ;
+    private static final int JULIA_PREVIEW_ITERATIONS = 100 ;
+
+    // Hits per pixel at which previews drawn by inverse iteration stop expanding a point
+    private static final int JULIA_PREVIEW_MAX_HITS = 8 ;
+
+    // Upper bound for guessed iteration levels; the guess grows without bound as size -> 0
+    private static final int MAX_GUESSED_ITERATIONS = 100_000 ;
+
+    // Pixel spacing at level 0 of the tile cache: that of the default view
+    private static final BigDecimal BASE_PIXEL_SIZE = new BigDecimal(3).divide(BigDecimal.valueOf(VIEW_WIDTH));
+
+    // Views whose pixel spacing is this close (in powers of 2) to a cache level are snapped to it
+    private static final double CACHE_LEVEL_TOLERANCE = 1e-6 ;
+
+    private static final long TILE_CACHE_BYTES = 64L << 20 ;
+
+    private static final long TILE_STORE_BYTES = 512L << 20 ;
+
+    // How long shutdown() waits for computations to stop
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5 ;
+
+    // Enough buffers for the computed views waiting to be shown, the view being computed,
+    // and the views on display
+    private static final int FRAME_BUFFER_POOL_SIZE = 16 ;
+
+    private static final String FRAME_METRICS_NAME = "application:type=FrameMetrics" ;
+
     private final ObjectProperty<MandelbrotView> currentMandelbrot = new SimpleObjectProperty<>();
     private final ObjectProperty<JuliaSetView> currentJuliaSet = new SimpleObjectProperty<>();
 
@@ -47,11 +93,32 @@ public class Model {
         return thread;
     });
 
-    private final BlockingQueue<MandelbrotView> computationQueue = new ComputationQueue(10);
+    private final ForkJoinPool computePool = new ForkJoinPool(PARALLELIZATION_LEVEL, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    private final BlockingQueue<MandelbrotView> computationQueue = new ComputationQueue(ANIMATION_FRAMES);
     private final BlockingQueue<MandelbrotView> viewQueue = new ViewQueue(10);
 
     private final ReadOnlyIntegerWrapper framesPendingRendering = new ReadOnlyIntegerWrapper();
 
+    private final AtomicReference<MandelbrotView> partialView = new AtomicReference<>();
+
+    // Incremented by each new request, making the views of earlier requests stale
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<MandelbrotView> computingView = new AtomicReference<>();
+
+    private final TileCache tileCache = new TileCache(TILE_CACHE_BYTES);
+
+    private final FrameBufferPool bufferPool = new FrameBufferPool(FRAME_BUFFER_POOL_SIZE);
+
+    private final JuliaSetScheduler juliaScheduler = new JuliaSetScheduler(computePool, PARALLELIZATION_LEVEL);
+
+    private final FrameMetrics frameMetrics = new FrameMetrics(computationQueue::size, viewQueue::size);
+    private ObjectName frameMetricsName ;
+
     private final ReadOnlyBooleanWrapper zoomingInProgress = new ReadOnlyBooleanWrapper();
 
     private final IntegerProperty frameCount = new SimpleIntegerProperty();
@@ -59,6 +126,17 @@ public class Model {
     private BooleanProperty trackingJuliaSet = new SimpleBooleanProperty();
     private BooleanProperty reverseZoomAction = new SimpleBooleanProperty();
     private BooleanProperty guessIteration = new SimpleBooleanProperty();
+    private ObjectProperty<RenderMode> renderMode = new SimpleObjectProperty<>(
+            RenderMode.valueOf(System.getProperty("mandelbrot.renderMode", RenderMode.PROGRESSIVE.name())));
+    private ObjectProperty<ColoringMode> coloringMode = new SimpleObjectProperty<>(ColoringMode.BANDED);
+    private BooleanProperty laneKernel = new SimpleBooleanProperty(
+            ! "false".equals(System.getProperty("mandelbrot.laneKernel")));
+    private BooleanProperty incrementalZoom = new SimpleBooleanProperty(
+            ! "false".equals(System.getProperty("mandelbrot.incrementalZoom")));
+    private BooleanProperty tileCaching = new SimpleBooleanProperty(
+            ! "false".equals(System.getProperty("mandelbrot.tileCache")));
+    private BooleanProperty antialiasing = new SimpleBooleanProperty(
+            Boolean.getBoolean("mandelbrot.antialiasing"));
     
     private BiConsumer<String, Exception> errorHandler ;
 
@@ -75,14 +153,42 @@ public class Model {
             try {
                 while (true) {
                     MandelbrotView mandelbrot = computationQueue.take();
-                    mandelbrot.compute(exec, PARALLELIZATION_LEVEL);
-                    viewQueue.put(mandelbrot);
+                    long start = System.nanoTime();
+                    frameMetrics.recordComputationQueueWait(start - mandelbrot.getQueuedTime());
+                    computingView.set(mandelbrot);
+                    if (! isStale(mandelbrot)) {
+                        mandelbrot.compute(computePool, PARALLELIZATION_LEVEL);
+                    }
+                    computingView.set(null);
+                    partialView.compareAndSet(mandelbrot, null);
+                    if (isStale(mandelbrot)) {
+                        // the count is only changed on the FX Application Thread
+                        Platform.runLater(() -> framesPendingRendering.set(framesPendingRendering.get() - 1));
+                        frameMetrics.recordStaleFrame();
+                    } else {
+                        long computed = System.nanoTime();
+                        frameMetrics.recordFrame(mandelbrot, computed - start);
+                        mandelbrot.setQueuedTime(computed);
+                        viewQueue.put(mandelbrot);
+                        frameMetrics.recordViewQueueBlocked(System.nanoTime() - computed);
+                    }
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         };
         exec.execute(computeThread);
+        exec.execute(juliaScheduler);
+
+        coloringMode.addListener((obs, oldMode, newMode) -> recolorCurrentViews(newMode));
+
+        // views are finished with once they have been shown and replaced:
+        currentMandelbrot.addListener((obs, oldMandelbrot, newMandelbrot) -> disposeReplaced(oldMandelbrot));
+        currentJuliaSet.addListener((obs, oldJuliaSet, newJuliaSet) -> disposeReplaced(oldJuliaSet));
+
+        if (! "false".equals(System.getProperty("mandelbrot.jmx"))) {
+            registerFrameMetrics();
+        }
     }
     
     /*
@@ -157,6 +263,78 @@ public class Model {
         this.guessIterationProperty().set(guessIteration);
     }
 
+    public final ObjectProperty<RenderMode> renderModeProperty() {
+        return this.renderMode;
+    }
+
+    public final RenderMode getRenderMode() {
+        return this.renderModeProperty().get();
+    }
+
+    public final void setRenderMode(final RenderMode renderMode) {
+        this.renderModeProperty().set(renderMode);
+    }
+
+    public final ObjectProperty<ColoringMode> coloringModeProperty() {
+        return this.coloringMode;
+    }
+
+    public final ColoringMode getColoringMode() {
+        return this.coloringModeProperty().get();
+    }
+
+    public final void setColoringMode(final ColoringMode coloringMode) {
+        this.coloringModeProperty().set(coloringMode);
+    }
+
+    public final BooleanProperty laneKernelProperty() {
+        return this.laneKernel;
+    }
+
+    public final boolean isLaneKernel() {
+        return this.laneKernelProperty().get();
+    }
+
+    public final void setLaneKernel(final boolean laneKernel) {
+        this.laneKernelProperty().set(laneKernel);
+    }
+
+    public final BooleanProperty incrementalZoomProperty() {
+        return this.incrementalZoom;
+    }
+
+    public final boolean isIncrementalZoom() {
+        return this.incrementalZoomProperty().get();
+    }
+
+    public final void setIncrementalZoom(final boolean incrementalZoom) {
+        this.incrementalZoomProperty().set(incrementalZoom);
+    }
+
+    public final BooleanProperty tileCachingProperty() {
+        return this.tileCaching;
+    }
+
+    public final boolean isTileCaching() {
+        return this.tileCachingProperty().get();
+    }
+
+    public final void setTileCaching(final boolean tileCaching) {
+        this.tileCachingProperty().set(tileCaching);
+    }
+
+    public final BooleanProperty antialiasingProperty() {
+        return this.antialiasing;
+    }
+
+    public final boolean isAntialiasing() {
+        return this.antialiasingProperty().get();
+    }
+
+    public final void setAntialiasing(final boolean antialiasing) {
+        this.antialiasingProperty().set(antialiasing);
+    }
+
     public final IntegerProperty frameCountProperty() {
         return this.frameCount;
     }
@@ -189,6 +367,25 @@ public class Model {
      * ==========
      */
     
+    /**
+     * This method may be called from any thread.
+     * @return The pool from which views take their buffers; buffers are returned to it
+     * when a view has been shown and replaced.
+     */
+    public FrameBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * This method may be called from any thread.
+     * @return Measurements of the frames computed and displayed. Unless the system property
+     * <code>mandelbrot.jmx</code> is <code>false</code>, these are also published through
+     * the platform MBean server; see {@link FrameMetricsMXBean}.
+     */
+    public FrameMetrics getFrameMetrics() {
+        return frameMetrics;
+    }
+
     /**
      * This method may be called from any thread.
      * @return A queue of computed MandelbrotViews ready for rendering
@@ -196,6 +393,35 @@ public class Model {
     public BlockingQueue<MandelbrotView> getViewQueue() {
         return viewQueue;
     }
+
+    /**
+     * This method may be called from any thread.
+     * @return The cache of computed tiles used for views at rest (after a reset, at the end
+     * of a zoom, or on changing the iteration level).
+     */
+    public TileCache getTileCache() {
+        return tileCache;
+    }
+
+    /**
+     * Keep computed tiles in a persistent store in the given directory, so that they can
+     * be reused in later sessions.
+     */
+    public void openTileStore(Path directory) throws IOException {
+        tileCache.setStore(new TileStore(directory, TILE_STORE_BYTES));
+    }
+
+    /**
+     * When the render mode is {@link RenderMode#PROGRESSIVE}, a MandelbrotView becomes available here
+     * as soon as its first coarse pass is complete, and again after each refining pass,
+     * before it is eventually placed in the view queue. Its image is updated in place
+     * as the passes complete. This method may be called from any thread.
+     * @return The most recent partially computed MandelbrotView, or null if there has been
+     * none since the last call.
+     */
+    public MandelbrotView pollPartialView() {
+        return partialView.getAndSet(null);
+    }
     
 
     public BiConsumer<String, Exception> getErrorHandler() {
@@ -224,15 +450,40 @@ public class Model {
      * Gracefully shutdown. This method may be called from any thread.
      */
     public void shutdown() {
-        exec.shutdown();
+        // the computation thread and Julia set scheduler run until they are interrupted
+        MandelbrotView computing = computingView.get();
+        if (computing != null) {
+            computing.cancel();
+        }
+        exec.shutdownNow();
+        computePool.shutdown();
+        unregisterFrameMetrics();
+        try {
+            // views still being computed may write tiles to the store
+            exec.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            computePool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        TileStore store = tileCache.getStore();
+        if (store != null) {
+            tileCache.setStore(null);
+            try {
+                store.close();
+            } catch (IOException exc) {
+                errorOccurred("An error occurred closing the tile store", exc);
+            }
+        }
     }
 
     /**
      * Reset to the default image. No zooming is performed. This method may be called from any thread.
      */
     public void reset() {
+        cancelPendingViews();
         try {
-            computationQueue.put(createMandelbrotView(-0.5, 0, 3, 3, estimateIterationLevel(3)));
+            computationQueue.put(createCachedMandelbrotView(BigDecimal.valueOf(-0.5), BigDecimal.ZERO,
+                    3, 3, estimateIterationLevel(3)));
         } catch (Exception e) {
             Thread.currentThread().interrupt();
         }
@@ -244,15 +495,13 @@ public class Model {
      */
     public void updateMaxIterations(int maxIterations) {
         if (maxIterations != getCurrentMandelbrot().getIterationLevel()) {
+            cancelPendingViews();
             try {
-                Bounds currentBounds = getCurrentMandelbrot().getBounds();
-                double centerX = currentBounds.getMinX()
-                        + currentBounds.getWidth() / 2;
-                double centerY = currentBounds.getMinY()
-                        + currentBounds.getHeight() / 2;
+                PlaneBounds currentBounds = getCurrentMandelbrot().getBounds();
                 double width = currentBounds.getWidth();
                 double height = currentBounds.getHeight();
-                computationQueue.put(createMandelbrotView(centerX, centerY,
+                computationQueue.put(createCachedMandelbrotView(
+                        getCurrentMandelbrot().getCenterX(), getCurrentMandelbrot().getCenterY(),
                         width, height, maxIterations));
             } catch (InterruptedException exc) {
                 Thread.currentThread().interrupt();
@@ -265,7 +514,11 @@ public class Model {
      * Zoom to a new location, based on the pixel coordinates in the space
      * of <code>getCurrentMandelbrot().getImage()</code>.
      * This method creates the MandelbrotViews and schedules them for computation on a background
-     * thread, placing them in the `viewQueue` when computation is complete.
+     * thread, placing them in the `viewQueue` when computation is complete. Any views still
+     * pending from earlier requests are abandoned.
+     * If incremental zoom is enabled, each frame except the last reuses the rows and columns
+     * of the frame before it (see {@link FractalView#setPredecessor(FractalView, double, double)}),
+     * and the last frame is computed in full, or taken from the tile cache.
      * @param pixelX x-coordinate of the center of the target zoom, in pixel coordinate space of the current view.
      * @param pixelY y-coordinate of the center of the target zoom, in pixel coordinate space of the current view.
      * @param zoomFactor Factor by which to zoom. A <code>zoomFactor > 1</code> indicates "zooming in".
@@ -274,10 +527,12 @@ public class Model {
     public void startZoom(double pixelX, double pixelY, double zoomFactor,
             Optional<Integer> maxIterations) {
 
-        final Bounds bounds = currentMandelbrot.get().getBounds();
+        cancelPendingViews();
 
-        final double currentX = bounds.getMinX() + bounds.getWidth() / 2;
-        final double currentY = bounds.getMinY() + bounds.getHeight() / 2;
+        final PlaneBounds bounds = currentMandelbrot.get().getBounds();
+
+        final BigDecimal currentX = currentMandelbrot.get().getCenterX();
+        final BigDecimal currentY = currentMandelbrot.get().getCenterY();
 
         final double deltaX = bounds.getWidth() * (pixelX / VIEW_WIDTH - 0.5); 
         final double deltaY = bounds.getHeight() * (1 - pixelY / VIEW_HEIGHT - 0.5); 
@@ -293,18 +548,25 @@ public class Model {
         final double frameDeltaWidth = deltaWidth / ANIMATION_FRAMES;
         final double frameDeltaHeight = deltaHeight / ANIMATION_FRAMES;
         
+        MandelbrotView previousFrame = currentMandelbrot.get();
         for (int i = 1; i <= ANIMATION_FRAMES; i++) {
             try {
 
                 double width = currentWidth + i * frameDeltaWidth;
                 int iterationLevel = maxIterations.orElse(estimateIterationLevel(width));
 
-                computationQueue.put(createMandelbrotView(
-                        currentX + i * frameDeltaX, 
-                        currentY + i * frameDeltaY,
-                        currentWidth + i * frameDeltaWidth,
-                        currentHeight + i * frameDeltaHeight,
-                        iterationLevel));
+                BigDecimal frameX = currentX.add(new BigDecimal(i * frameDeltaX));
+                BigDecimal frameY = currentY.add(new BigDecimal(i * frameDeltaY));
+                double frameWidth = currentWidth + i * frameDeltaWidth ;
+                double frameHeight = currentHeight + i * frameDeltaHeight ;
+                MandelbrotView frame = i < ANIMATION_FRAMES
+                        ? createMandelbrotView(frameX, frameY, frameWidth, frameHeight, iterationLevel)
+                        : createCachedMandelbrotView(frameX, frameY, frameWidth, frameHeight, iterationLevel);
+                if (isIncrementalZoom() && i < ANIMATION_FRAMES) {
+                    frame.setPredecessor(previousFrame, frameDeltaX, frameDeltaY);
+                }
+                previousFrame = frame ;
+                computationQueue.put(frame);
             } catch (InterruptedException exc) {
                 Thread.currentThread().interrupt();
             }
@@ -312,43 +574,239 @@ public class Model {
     }
 
     /**
-     * Compute a new JuliaSetView in a background thread. When computation is complete,
-     * the JuliaSetView is passed to the <code>whenFinished</code> callback.
-     * This method may be called from any thread; <code>whenFinished.accept(..)</code>
-     * will however be called from a background thread.
-     * Note that this method will not update the currentJuliaSetProperty. It is the
-     * responsibility of the <code>whenFinished</code> to do so, with appropriate
-     * regard to threading concerns, if required.
+     * Request a new JuliaSetView, to be computed in a background thread. Requests are
+     * coalesced: a request supersedes any earlier one which has not yet been computed, and
+     * abandons one being computed, so requests may be made as often as the mouse moves. The
+     * most recently completed JuliaSetView is collected with {@link #pollJuliaSet()}.
+     * This method may be called from any thread.
      * @param cx The x-value in the complex plane for the Julia Set.
      * @param cy The y-value in the complex plane for the Julia Set.
      * @param iterationLevel The maximum number of iterations used in the computation.
-     * @param whenFinished Callback to process the JuliaSetView when computation is finished.
+     * @see JuliaSetScheduler
+     */
+    public void requestJuliaSet(double cx, double cy, int iterationLevel) {
+        requestJuliaSet(VIEW_WIDTH, VIEW_HEIGHT, cx, cy, iterationLevel, isAntialiasing());
+    }
+
+    /**
+     * Request a quick preview of a Julia set, with 1/{@link #JULIA_PREVIEW_SCALE} of the
+     * resolution of the full view in each direction, which takes a fraction of a display
+     * frame to compute. If c lies in the Mandelbrot set, so that the Julia set is
+     * connected, the preview shows its boundary, drawn by inverse iteration (see
+     * {@link InverseIterationJuliaSetView}); otherwise it is computed by escape time with a
+     * fixed, low iteration level. Unlike {@link #estimateJuliaIterationLevel(double, double)},
+     * this does not consult the current Mandelbrot view. The preview is computed and collected as for
+     * {@link #requestJuliaSet(double, double, int)}, and abandons any full-size Julia set
+     * being computed. This method may be called from any thread.
+     */
+    public void requestJuliaSetPreview(double cx, double cy) {
+        final int width = VIEW_WIDTH / JULIA_PREVIEW_SCALE ;
+        final int height = VIEW_HEIGHT / JULIA_PREVIEW_SCALE ;
+        if (MandelbrotView.escapeCount(cx, cy, MAX_JULIA_ITERATIONS) == MAX_JULIA_ITERATIONS) {
+            JuliaSetView juliaSet = new InverseIterationJuliaSetView(width, height, JULIA_PREVIEW_MAX_HITS, cx, cy);
+            juliaSet.setColoringMode(getColoringMode());
+            juliaSet.setBufferPool(bufferPool);
+            juliaScheduler.submit(juliaSet);
+        } else {
+            // every estimate is at least MIN_JULIA_ITERATIONS, which is more than a preview needs
+            requestJuliaSet(width, height, cx, cy, JULIA_PREVIEW_ITERATIONS, false);
+        }
+    }
+
+    /**
+     * Choose an iteration level for the Julia set with parameter c. If c lies outside the
+     * Mandelbrot set, the Julia set is dust, and its points escape in about as many
+     * iterations as the orbit of 0 does, so twice that number suffices. Otherwise the
+     * level of the current Mandelbrot view is used, as it reflects the detail around c.
+     */
+    public int estimateJuliaIterationLevel(double cx, double cy) {
+        int escapeCount = MandelbrotView.escapeCount(cx, cy, MAX_JULIA_ITERATIONS);
+        int level ;
+        if (escapeCount < MAX_JULIA_ITERATIONS) {
+            level = 2 * escapeCount ;
+        } else {
+            level = getCurrentMandelbrot() == null ? MIN_JULIA_ITERATIONS : getCurrentMandelbrot().getIterationLevel();
+        }
+        return Math.max(MIN_JULIA_ITERATIONS, Math.min(MAX_JULIA_ITERATIONS, level));
+    }
+
+    private void requestJuliaSet(int width, int height, double cx, double cy, int iterationLevel,
+            boolean antialiasing) {
+        JuliaSetView juliaSet = isLaneKernel()
+                ? new LaneJuliaSetView(width, height, iterationLevel, cx, cy)
+                : new JuliaSetView(width, height, iterationLevel, cx, cy);
+        juliaSet.setColoringMode(getColoringMode());
+        juliaSet.setAntialiasing(antialiasing);
+        juliaSet.setBufferPool(bufferPool);
+        juliaScheduler.submit(juliaSet);
+    }
+
+    /**
+     * Note that this method will not update the currentJuliaSetProperty. It is the
+     * responsibility of the caller to do so, with appropriate regard to threading
+     * concerns. This method may be called from any thread.
+     * @return The most recently completed JuliaSetView requested by
+     * {@link #requestJuliaSet(double, double, int)}, or null if none has been completed
+     * since the last call.
+     */
+    public JuliaSetView pollJuliaSet() {
+        return juliaScheduler.poll();
+    }
+
+    /**
+     * This method may be called from any thread.
+     * @return The scheduler which computes the requested JuliaSetViews.
      */
-    public void computeJuliaSet(double cx, double cy, int iterationLevel,
-            Consumer<JuliaSetView> whenFinished) {
-        exec.execute(() -> {
-            JuliaSetView juliaSet = new JuliaSetView(VIEW_WIDTH, VIEW_HEIGHT,
-                    iterationLevel, cx, cy);
-            juliaSet.compute(exec, PARALLELIZATION_LEVEL);
-            whenFinished.accept(juliaSet);
-        });
+    public JuliaSetScheduler getJuliaSetScheduler() {
+        return juliaScheduler;
     }
     
-    private MandelbrotView createMandelbrotView(double centerX, double centerY,
+    private synchronized void registerFrameMetrics() {
+        try {
+            ObjectName name = new ObjectName(FRAME_METRICS_NAME);
+            // only one model's metrics can be published under the name
+            if (! ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(frameMetrics, name);
+                frameMetricsName = name ;
+            }
+        } catch (JMException exc) {
+            // the metrics remain available from getFrameMetrics()
+            errorOccurred("Frame metrics could not be published", exc);
+        }
+    }
+
+    private synchronized void unregisterFrameMetrics() {
+        if (frameMetricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(frameMetricsName);
+            } catch (JMException exc) {
+                errorOccurred("Frame metrics could not be withdrawn", exc);
+            }
+            frameMetricsName = null ;
+        }
+    }
+
+    /**
+     * Apply a new coloring mode to the views currently displayed, without recomputing them.
+     */
+    private void recolorCurrentViews(ColoringMode mode) {
+        for (FractalView view : new FractalView[] {getCurrentMandelbrot(), getCurrentJuliaSet()}) {
+            if (view != null) {
+                exec.execute(() -> {
+                    // the view may be replaced, and disposed, while it is recolored; a view
+                    // still being computed applies the new mode when its computation completes:
+                    if (view.retain()) {
+                        try {
+                            view.setColoringMode(mode);
+                            view.recolor(computePool, PARALLELIZATION_LEVEL);
+                        } finally {
+                            view.release();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Return the buffers of a view which has been replaced on display to the pool.
+     * Views abandoned before they were shown are left to the garbage collector, since
+     * the display may still be about to show them.
+     */
+    private void disposeReplaced(FractalView view) {
+        if (view != null) {
+            view.dispose();
+        }
+    }
+
+    /**
+     * Start a new generation of requests. Views waiting to be computed or rendered are
+     * discarded, and the view being computed, if any, is cancelled.
+     */
+    private void cancelPendingViews() {
+        generation.incrementAndGet();
+
+        List<MandelbrotView> stale = new ArrayList<>();
+        computationQueue.drainTo(stale);
+        stale.forEach(MandelbrotView::cancel);
+        framesPendingRendering.set(framesPendingRendering.get() - stale.size());
+
+        MandelbrotView computing = computingView.get();
+        if (computing != null) {
+            computing.cancel();
+        }
+        // the view queue accounts for its own pending frames as they are drained:
+        viewQueue.drainTo(new ArrayList<>());
+    }
+
+    private boolean isStale(MandelbrotView mandelbrot) {
+        return mandelbrot.isCancelled() || mandelbrot.getGeneration() != generation.get();
+    }
+
+    /**
+     * Create a MandelbrotView with a kernel appropriate to the zoom level.
+     * @see MandelbrotView#create
+     */
+    private MandelbrotView createMandelbrotView(BigDecimal centerX, BigDecimal centerY,
             double width, double height, int maxIterations) {
 
-        Bounds bounds = new BoundingBox(centerX - width / 2, centerY - height / 2, width, height);
-        MandelbrotView mandelbrot = new MandelbrotView(VIEW_WIDTH, VIEW_HEIGHT,
-                bounds, maxIterations);
+        final MandelbrotView mandelbrot = MandelbrotView.create(VIEW_WIDTH, VIEW_HEIGHT,
+                centerX, centerY, width, height, maxIterations, isLaneKernel());
+
+        mandelbrot.setGeneration(generation.get());
+        mandelbrot.setBufferPool(bufferPool);
+        mandelbrot.setRenderMode(getRenderMode());
+        mandelbrot.setColoringMode(getColoringMode());
+        mandelbrot.setOnPassCompleted(() -> partialView.set(mandelbrot));
 
         return mandelbrot;
     }
 
+    /**
+     * Create a MandelbrotView which is assembled from the tile cache where possible. If the
+     * pixel spacing is within rounding error of a level of the cache, the view is snapped
+     * to that level, and its center moved by less than half a pixel so that its pixels lie
+     * on the grid of the level. Otherwise the view is created without the cache. These are
+     * the views the display comes to rest on, so they are antialiased if that is enabled.
+     */
+    private MandelbrotView createCachedMandelbrotView(BigDecimal centerX, BigDecimal centerY,
+            double width, double height, int maxIterations) {
+
+        double pixelSize = width / VIEW_WIDTH ;
+        double levelEstimate = Math.log(BASE_PIXEL_SIZE.doubleValue() / pixelSize) / Math.log(2);
+        int level = (int) Math.round(levelEstimate);
+        if (! isTileCaching() || Math.abs(levelEstimate - level) > CACHE_LEVEL_TOLERANCE
+                || Math.abs(height / VIEW_HEIGHT / pixelSize - 1) > CACHE_LEVEL_TOLERANCE) {
+            MandelbrotView mandelbrot = createMandelbrotView(centerX, centerY, width, height, maxIterations);
+            mandelbrot.setAntialiasing(isAntialiasing());
+            return mandelbrot ;
+        }
+
+        BigDecimal levelPixelSize = level >= 0
+                ? BASE_PIXEL_SIZE.multiply(new BigDecimal("0.5").pow(level))
+                : BASE_PIXEL_SIZE.multiply(BigDecimal.valueOf(2).pow(-level));
+        BigInteger pixelX = centerX.divide(levelPixelSize, 0, RoundingMode.HALF_EVEN).toBigIntegerExact();
+        BigInteger pixelY = centerY.divide(levelPixelSize, 0, RoundingMode.HALF_EVEN).toBigIntegerExact();
+
+        MandelbrotView mandelbrot = createMandelbrotView(
+                levelPixelSize.multiply(new BigDecimal(pixelX)),
+                levelPixelSize.multiply(new BigDecimal(pixelY)),
+                VIEW_WIDTH * levelPixelSize.doubleValue(), VIEW_HEIGHT * levelPixelSize.doubleValue(),
+                maxIterations);
+
+        // pixel rows run downwards, so the global row index is the negated y-coordinate:
+        mandelbrot.setTileCache(tileCache, level,
+                pixelX.subtract(BigInteger.valueOf(VIEW_WIDTH / 2)),
+                pixelY.negate().subtract(BigInteger.valueOf(VIEW_HEIGHT / 2)));
+        mandelbrot.setAntialiasing(isAntialiasing());
+        return mandelbrot ;
+    }
+
     private int estimateIterationLevel(double size) {
         if (size > 3) {
             return 50 ;
         }
-        return (int) (100 * Math.pow(2.5 / Math.sqrt(size) - 1, 0.25));
+        return (int) Math.min(MAX_GUESSED_ITERATIONS, 100 * Math.pow(2.5 / Math.sqrt(size) - 1, 0.25));
     }
 
 
@@ -363,6 +821,7 @@ public class Model {
         public MandelbrotView remove() {
             MandelbrotView view = super.remove();
             framesPendingRendering.set(framesPendingRendering.get() - 1);
+            frameMetrics.recordViewQueueWait(System.nanoTime() - view.getQueuedTime());
             return view ;
         }
         @Override
@@ -370,6 +829,7 @@ public class Model {
             MandelbrotView view = super.poll();
             if (view != null) {
                 framesPendingRendering.set(framesPendingRendering.get() - 1);
+                frameMetrics.recordViewQueueWait(System.nanoTime() - view.getQueuedTime());
             }
             return view ;
         }
@@ -377,6 +837,7 @@ public class Model {
         public MandelbrotView take() throws InterruptedException {
             MandelbrotView view = super.take();
             framesPendingRendering.set(framesPendingRendering.get() - 1);
+            frameMetrics.recordViewQueueWait(System.nanoTime() - view.getQueuedTime());
             return view ;
             
         }
@@ -386,6 +847,7 @@ public class Model {
             MandelbrotView view = super.poll(timeout, unit);
             if (view != null) {
                 framesPendingRendering.set(framesPendingRendering.get() - 1);
+                frameMetrics.recordViewQueueWait(System.nanoTime() - view.getQueuedTime());
             }
             return view ;
         }
@@ -425,6 +887,7 @@ public class Model {
 
         @Override
         public boolean add(MandelbrotView e) {
+            e.setQueuedTime(System.nanoTime());
             boolean result = super.add(e);
             if (result) {
                 framesPendingRendering.set(framesPendingRendering.get() + 1);
@@ -434,6 +897,7 @@ public class Model {
 
         @Override
         public boolean offer(MandelbrotView e) {
+            e.setQueuedTime(System.nanoTime());
             boolean result = super.offer(e);
             if (result) {
                 framesPendingRendering.set(framesPendingRendering.get() + 1);
@@ -443,6 +907,7 @@ public class Model {
 
         @Override
         public void put(MandelbrotView e) throws InterruptedException {
+            e.setQueuedTime(System.nanoTime());
             super.put(e);
              framesPendingRendering.set(framesPendingRendering.get() + 1);
         }
@@ -450,6 +915,7 @@ public class Model {
         @Override
         public boolean offer(MandelbrotView e, long timeout, TimeUnit unit)
                 throws InterruptedException {
+            e.setQueuedTime(System.nanoTime());
             boolean result = super.offer(e, timeout, unit);
             if (result) {
                 framesPendingRendering.set(framesPendingRendering.get() + 1);
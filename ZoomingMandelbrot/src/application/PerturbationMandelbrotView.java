@@ -0,0 +1,307 @@
+package application;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MandelbrotView for zoom levels beyond the resolution of double precision.
+ * <p>
+ * A single reference orbit is computed to arbitrary precision at the center of the
+ * view, and stored as doubles. Each pixel is then iterated in double precision as a
+ * small offset (delta) from the reference orbit, using
+ * <pre>
+ *   dz(n+1) = 2 Z(n) dz(n) + dz(n)^2 + dc
+ * </pre>
+ * Since only the deltas need to be represented, and not the absolute coordinates,
+ * doubles are sufficient down to view widths of around 1e-300.
+ * <p>
+ * The delta iteration loses precision ("glitches") when the full value of the orbit
+ * <code>Z + dz</code> becomes smaller than the delta itself. When that happens, the
+ * pixel is rebased: its orbit is re-expressed as a delta from the start of the
+ * reference orbit (at which point the reference is zero), and iteration continues
+ * from there. The same rebasing is used when a pixel outlives the reference orbit,
+ * which happens when the center of the view is not in the Mandelbrot set.
+ * <p>
+ * Before the per-pixel loop runs, a truncated series approximation
+ * <pre>
+ *   dz(n) = A(n) dc + B(n) dc^2 + C(n) dc^3
+ * </pre>
+ * is built from the reference orbit. While the cubic term remains negligible
+ * compared to the quadratic term over the whole view, every pixel can be started at
+ * iteration n directly from the series instead of iterating from zero. The
+ * coefficients are stored scaled by powers of the largest delta in the view, so
+ * they stay within double range at any zoom depth.
+ */
+public class PerturbationMandelbrotView extends MandelbrotView {
+
+    // Extra decimal digits carried in the reference orbit beyond the pixel spacing
+    private static final int GUARD_DIGITS = 20 ;
+
+    private double[] referenceX ;
+    private double[] referenceY ;
+    private int referenceLength ;
+    private double referenceCenterX ;
+    private double referenceCenterY ;
+
+    // Maximum ratio of the cubic to the quadratic term for the series to be trusted
+    private static final double SERIES_TOLERANCE = 1e-4 ;
+
+    // Maximum relative error of the series against directly iterated probe points
+    private static final double PROBE_TOLERANCE = 1e-3 ;
+
+    private int skippedIterations ;
+    private double seriesScale ;
+    private double[] seriesCoefficients ;
+
+    private final LongAdder rebaseCount = new LongAdder();
+
+    // At depth the absolute coordinates of neighboring pixels round to the same double, so
+    // the cardioid and bulb test is made for the view as a whole:
+    private final boolean pixelCardioidTest ;
+    private final boolean viewInCardioidOrBulb ;
+
+    public PerturbationMandelbrotView(int width, int height, BigDecimal centerX, BigDecimal centerY,
+            double viewWidth, double viewHeight, int maxIterations) {
+        super(width, height, centerX, centerY, viewWidth, viewHeight, maxIterations);
+        this.pixelCardioidTest = canTestPixelsForCardioidOrBulb();
+        this.viewInCardioidOrBulb = ! pixelCardioidTest && isViewInMainCardioidOrBulb();
+    }
+
+    /**
+     * @return The number of times a pixel orbit was rebased onto the start of the
+     * reference orbit during the last computation.
+     */
+    public long getRebaseCount() {
+        return rebaseCount.sum();
+    }
+
+    /**
+     * @return The number of iterations each pixel skipped by starting from the series
+     * approximation during the last computation.
+     */
+    public int getSkippedIterations() {
+        return skippedIterations;
+    }
+
+    /**
+     * @return The total number of iterations skipped across all pixels during the
+     * last computation.
+     */
+    public long getTotalSkippedIterations() {
+        return (long) skippedIterations * getWidth() * getHeight();
+    }
+
+    @Override
+    public void compute(Executor exec, int parallelizationLevel) {
+        computeReferenceOrbit();
+        computeSeriesApproximation();
+        super.compute(exec, parallelizationLevel);
+    }
+
+    private void computeReferenceOrbit() {
+        final int maxIterations = getIterationLevel();
+        final double pixelSize = Math.min(getBounds().getWidth() / getWidth(),
+                getBounds().getHeight() / getHeight());
+        final int digits = Math.max(16, (int) Math.ceil(-Math.log10(pixelSize))) + GUARD_DIGITS ;
+        final MathContext mc = new MathContext(digits);
+
+        final BigDecimal cx = getCenterX().round(mc);
+        final BigDecimal cy = getCenterY().round(mc);
+        final BigDecimal two = BigDecimal.valueOf(2);
+
+        referenceX = new double[maxIterations + 1];
+        referenceY = new double[maxIterations + 1];
+
+        BigDecimal x = BigDecimal.ZERO ;
+        BigDecimal y = BigDecimal.ZERO ;
+
+        int n = 0 ;
+        while (n < maxIterations && ! isCancelled()) {
+            BigDecimal x2 = x.multiply(x, mc);
+            BigDecimal y2 = y.multiply(y, mc);
+            y = two.multiply(x, mc).multiply(y, mc).add(cy, mc);
+            x = x2.subtract(y2, mc).add(cx, mc);
+            n++ ;
+            double dx = x.doubleValue();
+            double dy = y.doubleValue();
+            referenceX[n] = dx ;
+            referenceY[n] = dy ;
+            if (dx * dx + dy * dy > 4) {
+                break ;
+            }
+        }
+        referenceLength = n ;
+        referenceCenterX = cx.doubleValue();
+        referenceCenterY = cy.doubleValue();
+    }
+
+    private void computeSeriesApproximation() {
+        final double[] refX = referenceX ;
+        final double[] refY = referenceY ;
+
+        final double halfWidth = getBounds().getWidth() / 2 ;
+        final double halfHeight = getBounds().getHeight() / 2 ;
+        final double scale = Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight);
+
+        // coefficients scaled by scale, scale^2 and scale^3 respectively:
+        double ax = 0, ay = 0, bx = 0, by = 0, cx = 0, cy = 0 ;
+
+        // the series is evaluated at iteration n, so it can only be used for n < referenceLength,
+        // leaving at least one step of the reference orbit for the per-pixel loop
+        int n = 0 ;
+        double[] coefficients = new double[6 * referenceLength];
+        while (n < referenceLength - 1) {
+            double zx = refX[n];
+            double zy = refY[n];
+            double nextAx = 2 * (zx * ax - zy * ay) + scale ;
+            double nextAy = 2 * (zx * ay + zy * ax) ;
+            double nextBx = 2 * (zx * bx - zy * by) + ax * ax - ay * ay ;
+            double nextBy = 2 * (zx * by + zy * bx) + 2 * ax * ay ;
+            double nextCx = 2 * (zx * cx - zy * cy) + 2 * (ax * bx - ay * by) ;
+            double nextCy = 2 * (zx * cy + zy * cx) + 2 * (ax * by + ay * bx) ;
+
+            double b = Math.hypot(nextBx, nextBy);
+            double c = Math.hypot(nextCx, nextCy);
+            if (c > SERIES_TOLERANCE * b || ! Double.isFinite(c)) {
+                break ;
+            }
+            ax = nextAx ; ay = nextAy ;
+            bx = nextBx ; by = nextBy ;
+            cx = nextCx ; cy = nextCy ;
+            n++ ;
+            int i = 6 * n ;
+            coefficients[i] = ax ; coefficients[i + 1] = ay ;
+            coefficients[i + 2] = bx ; coefficients[i + 3] = by ;
+            coefficients[i + 4] = cx ; coefficients[i + 5] = cy ;
+        }
+
+        // check the approximation against directly iterated corners of the view,
+        // backing off until they agree:
+        seriesScale = scale ;
+        int skip = n ;
+        while (skip > 0 && ! probesAgree(coefficients, skip, halfWidth, halfHeight)) {
+            skip /= 2 ;
+        }
+        skippedIterations = skip ;
+        seriesCoefficients = coefficients ;
+    }
+
+    private boolean probesAgree(double[] coefficients, int skip, double halfWidth, double halfHeight) {
+        final int i = 6 * skip ;
+        for (int corner = 0 ; corner < 4 ; corner++) {
+            double dcx = (corner & 1) == 0 ? -halfWidth : halfWidth ;
+            double dcy = (corner & 2) == 0 ? -halfHeight : halfHeight ;
+
+            double dzx = 0 ;
+            double dzy = 0 ;
+            for (int m = 0 ; m < skip ; m++) {
+                double zx = referenceX[m];
+                double zy = referenceY[m];
+                double newDzx = 2 * (zx * dzx - zy * dzy) + dzx * dzx - dzy * dzy + dcx ;
+                double newDzy = 2 * (zx * dzy + zy * dzx) + 2 * dzx * dzy + dcy ;
+                dzx = newDzx ;
+                dzy = newDzy ;
+                double x = referenceX[m + 1] + dzx ;
+                double y = referenceY[m + 1] + dzy ;
+                double modulus = x * x + y * y ;
+                if (modulus > 4 || modulus < dzx * dzx + dzy * dzy) {
+                    // escaped or would need rebasing before the skipped iterations are done
+                    return false ;
+                }
+            }
+
+            double ux = dcx / seriesScale ;
+            double uy = dcy / seriesScale ;
+            double errorX = evaluateSeriesX(coefficients, i, ux, uy) - dzx ;
+            double errorY = evaluateSeriesY(coefficients, i, ux, uy) - dzy ;
+            if (Math.hypot(errorX, errorY) > PROBE_TOLERANCE * Math.hypot(dzx, dzy)) {
+                return false ;
+            }
+        }
+        return true ;
+    }
+
+    private static double evaluateSeriesX(double[] coefficients, int i, double ux, double uy) {
+        double u2x = ux * ux - uy * uy ;
+        double u2y = 2 * ux * uy ;
+        double u3x = u2x * ux - u2y * uy ;
+        double u3y = u2x * uy + u2y * ux ;
+        return coefficients[i] * ux - coefficients[i + 1] * uy
+                + coefficients[i + 2] * u2x - coefficients[i + 3] * u2y
+                + coefficients[i + 4] * u3x - coefficients[i + 5] * u3y ;
+    }
+
+    private static double evaluateSeriesY(double[] coefficients, int i, double ux, double uy) {
+        double u2x = ux * ux - uy * uy ;
+        double u2y = 2 * ux * uy ;
+        double u3x = u2x * ux - u2y * uy ;
+        double u3y = u2x * uy + u2y * ux ;
+        return coefficients[i] * uy + coefficients[i + 1] * ux
+                + coefficients[i + 2] * u2y + coefficients[i + 3] * u2x
+                + coefficients[i + 4] * u3y + coefficients[i + 5] * u3x ;
+    }
+
+    @Override
+    protected int computeIterationCount(double px, double py, float[] moduli, int index) {
+        final int maxIterations = getIterationLevel();
+        final double scaleX = getBounds().getWidth() / getWidth() ;
+        final double scaleY = getBounds().getHeight() / getHeight() ;
+        final double dcx = (px - getWidth() / 2.0) * scaleX ;
+        final double dcy = (getHeight() / 2.0 - py) * scaleY ;
+
+        if (viewInCardioidOrBulb
+                || pixelCardioidTest && isInMainCardioidOrBulb(referenceCenterX + dcx, referenceCenterY + dcy)) {
+            return maxIterations ;
+        }
+
+        final double[] refX = referenceX ;
+        final double[] refY = referenceY ;
+
+        double dzx = 0 ;
+        double dzy = 0 ;
+        int m = 0 ;
+        int iterations = 0 ;
+        int rebases = 0 ;
+
+        if (skippedIterations > 0) {
+            double ux = dcx / seriesScale ;
+            double uy = dcy / seriesScale ;
+            dzx = evaluateSeriesX(seriesCoefficients, 6 * skippedIterations, ux, uy);
+            dzy = evaluateSeriesY(seriesCoefficients, 6 * skippedIterations, ux, uy);
+            m = skippedIterations ;
+            iterations = skippedIterations ;
+        }
+
+        while (iterations < maxIterations) {
+            double zx = refX[m];
+            double zy = refY[m];
+            double newDzx = 2 * (zx * dzx - zy * dzy) + dzx * dzx - dzy * dzy + dcx ;
+            double newDzy = 2 * (zx * dzy + zy * dzx) + 2 * dzx * dzy + dcy ;
+            dzx = newDzx ;
+            dzy = newDzy ;
+            m++ ;
+            iterations++ ;
+
+            double x = refX[m] + dzx ;
+            double y = refY[m] + dzy ;
+            double modulus = x * x + y * y ;
+            if (modulus > 4) {
+                moduli[index] = extendedModulus(x, y, referenceCenterX + dcx, referenceCenterY + dcy,
+                        ESCAPE_EXTENSION) ;
+                break ;
+            }
+            if (modulus < dzx * dzx + dzy * dzy || m == referenceLength) {
+                dzx = x ;
+                dzy = y ;
+                m = 0 ;
+                rebases++ ;
+            }
+        }
+        if (rebases > 0) {
+            rebaseCount.add(rebases);
+        }
+        return iterations ;
+    }
+}
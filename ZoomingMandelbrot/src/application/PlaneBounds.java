@@ -0,0 +1,49 @@
+package application;
+
+/**
+ * An axis-aligned rectangle in the complex plane. This class does not depend on JavaFX,
+ * so views can be computed where no JavaFX runtime is available.
+ */
+public final class PlaneBounds {
+
+    private final double minX ;
+    private final double minY ;
+    private final double width ;
+    private final double height ;
+
+    public PlaneBounds(double minX, double minY, double width, double height) {
+        this.minX = minX ;
+        this.minY = minY ;
+        this.width = width ;
+        this.height = height ;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return minX + width;
+    }
+
+    public double getMaxY() {
+        return minY + height;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PlaneBounds [minX=%s, minY=%s, width=%s, height=%s]", minX, minY, width, height);
+    }
+}
@@ -0,0 +1,253 @@
+package application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an opaque 8 bit RGB PNG image a few rows at a time, so that images far larger
+ * than memory can be encoded as they are computed. Only the current and previous row are
+ * held by the writer; compressed data is written out in chunks of at most
+ * {@link #CHUNK_SIZE} bytes.
+ * <p>
+ * Each row is filtered with whichever of the five PNG filters gives the smallest sum of
+ * absolute differences, the heuristic recommended by the PNG specification. This class
+ * is not thread safe.
+ */
+public class PngStreamWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private static final int CHUNK_SIZE = 1 << 16 ;
+
+    private static final int BYTES_PER_PIXEL = 3 ;
+
+    private final DataOutputStream out ;
+    private final DeflaterOutputStream idat ;
+    private final Deflater deflater ;
+    private final int width ;
+    private final int height ;
+    private int rowsWritten ;
+
+    private byte[] previousRow ;
+    private byte[] currentRow ;
+    private final byte[][] filtered = new byte[5][];
+
+    /**
+     * Write the PNG header for an image of the given size.
+     */
+    public PngStreamWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image dimensions must be positive");
+        }
+        this.out = new DataOutputStream(out);
+        this.width = width ;
+        this.height = height ;
+        this.previousRow = new byte[width * BYTES_PER_PIXEL];
+        this.currentRow = new byte[width * BYTES_PER_PIXEL];
+        for (int i = 0; i < filtered.length; i++) {
+            filtered[i] = new byte[1 + width * BYTES_PER_PIXEL];
+            filtered[i][0] = (byte) i ;
+        }
+
+        this.out.write(SIGNATURE);
+        DataChunk header = new DataChunk("IHDR");
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); // bit depth
+        headerData.writeByte(2); // color type: RGB
+        headerData.writeByte(0); // compression: deflate
+        headerData.writeByte(0); // filter method: adaptive
+        headerData.writeByte(0); // no interlace
+        header.close();
+
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.idat = new DeflaterOutputStream(new ChunkedOutputStream("IDAT"), deflater, CHUNK_SIZE);
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Write the next rows of the image.
+     * @param argb Pixels in ARGB format, in row-major order; the alpha channel is ignored
+     * @param offset Index in <code>argb</code> of the first pixel of the first row
+     * @param rows The number of rows to write
+     */
+    public void writeRows(int[] argb, int offset, int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException("Rows written exceed the height of the image");
+        }
+        for (int row = 0; row < rows; row++) {
+            int index = offset + row * width ;
+            for (int x = 0, i = 0; x < width; x++) {
+                int pixel = argb[index + x];
+                currentRow[i++] = (byte) (pixel >> 16);
+                currentRow[i++] = (byte) (pixel >> 8);
+                currentRow[i++] = (byte) pixel ;
+            }
+            idat.write(filterRow());
+
+            byte[] swap = previousRow ;
+            previousRow = currentRow ;
+            currentRow = swap ;
+            rowsWritten++ ;
+        }
+    }
+
+    /**
+     * Apply each filter to the current row and return the one which compresses best, as
+     * estimated by the sum of the filtered bytes regarded as signed values.
+     */
+    private byte[] filterRow() {
+        final byte[] row = currentRow ;
+        final byte[] prior = previousRow ;
+        final byte[] none = filtered[0];
+        final byte[] sub = filtered[1];
+        final byte[] up = filtered[2];
+        final byte[] average = filtered[3];
+        final byte[] paeth = filtered[4];
+        long[] sums = new long[5];
+
+        for (int i = 0; i < row.length; i++) {
+            int raw = row[i] & 0xff ;
+            int left = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xff : 0 ;
+            int above = prior[i] & 0xff ;
+            int upperLeft = i >= BYTES_PER_PIXEL ? prior[i - BYTES_PER_PIXEL] & 0xff : 0 ;
+
+            none[i + 1] = (byte) raw ;
+            sub[i + 1] = (byte) (raw - left);
+            up[i + 1] = (byte) (raw - above);
+            average[i + 1] = (byte) (raw - ((left + above) >> 1));
+            paeth[i + 1] = (byte) (raw - paethPredictor(left, above, upperLeft));
+
+            sums[0] += Math.abs(none[i + 1]);
+            sums[1] += Math.abs(sub[i + 1]);
+            sums[2] += Math.abs(up[i + 1]);
+            sums[3] += Math.abs(average[i + 1]);
+            sums[4] += Math.abs(paeth[i + 1]);
+        }
+
+        int best = 0 ;
+        for (int filter = 1; filter < sums.length; filter++) {
+            if (sums[filter] < sums[best]) {
+                best = filter ;
+            }
+        }
+        return filtered[best];
+    }
+
+    private static int paethPredictor(int a, int b, int c) {
+        int p = a + b - c ;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a ;
+        }
+        return pb <= pc ? b : c ;
+    }
+
+    /**
+     * Finish the image data, write the end of the image, and close the underlying stream.
+     * @throws IllegalStateException if fewer rows than the height of the image have been
+     * written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten < height) {
+                throw new IllegalStateException(String.format("Only %d of %d rows were written",
+                        rowsWritten, height));
+            }
+            idat.close();
+            new DataChunk("IEND").close();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeChunk(byte[] type, byte[] data, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(type);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Collects the data of a single chunk, which is written when it is closed.
+     */
+    private class DataChunk extends ByteArrayOutputStream {
+        private final byte[] type ;
+
+        DataChunk(String type) {
+            this.type = type.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writeChunk(type, buf, count);
+        }
+    }
+
+    /**
+     * Splits the data written to it into a sequence of chunks of the same type, each of at
+     * most {@link PngStreamWriter#CHUNK_SIZE} bytes. Closing it writes any remaining data
+     * but does not close the underlying stream.
+     */
+    private class ChunkedOutputStream extends OutputStream {
+        private final byte[] type ;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count ;
+
+        ChunkedOutputStream(String type) {
+            this.type = type.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b ;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n ;
+                off += n ;
+                len -= n ;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk(type, buffer, count);
+                count = 0 ;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+    }
+}
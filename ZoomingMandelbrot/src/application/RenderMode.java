@@ -0,0 +1,37 @@
+package application;
+
+/**
+ * Strategies used by {@link FractalView#compute(java.util.concurrent.Executor, int)}
+ * to decide which pixels to iterate. Every strategy computes the image tile by tile.
+ */
+public enum RenderMode {
+
+    /**
+     * Every pixel is iterated, in a single pass.
+     */
+    STANDARD,
+
+    /**
+     * Every pixel is iterated, in a series of increasingly fine passes, with the
+     * image updated after each pass.
+     */
+    PROGRESSIVE,
+
+    /**
+     * Mariani-Silver subdivision: the border of a rectangle is iterated, and if
+     * every border pixel has the same iteration count the interior is filled
+     * without iterating it. Otherwise the rectangle is split in two and each half
+     * is treated the same way. This relies on regions of equal iteration count
+     * being simply connected, so it is exact up to features smaller than the
+     * smallest rectangle.
+     */
+    BOUNDARY_TRACING,
+
+    /**
+     * Fractint-style solid guessing: a coarse grid of pixels is iterated, and each
+     * grid cell whose four corners have the same iteration count is filled without
+     * iterating it. Other cells are subdivided and refined. Faster than boundary
+     * tracing, but may miss thin features which pass between grid points.
+     */
+    SOLID_GUESSING
+}
@@ -0,0 +1,145 @@
+package application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Renders images too large to hold in memory, such as for print, by computing them in
+ * horizontal bands. Each band is an ordinary {@link FractalView} covering a strip of the
+ * image, and is streamed to a {@link PngStreamWriter} and discarded as soon as it is
+ * complete. While one band is being encoded, the next is computed in the pool, so at most
+ * two bands are held at once whatever the size of the image, and compression, which runs
+ * on a single thread, overlaps with computation.
+ * <p>
+ * Bands are colored independently, so coloring modes which depend on the distribution of
+ * iteration counts over the whole image ({@link ColoringMode#HISTOGRAM}) are not supported.
+ */
+public class StreamingRenderer {
+
+    /**
+     * Creates the view for a band of the image.
+     */
+    @FunctionalInterface
+    public interface BandFactory {
+        /**
+         * @param y The index of the first row of the band in the whole image
+         * @param rows The number of rows in the band
+         * @return A view of the full width of the image, covering the given rows
+         */
+        FractalView createBand(int y, int rows);
+    }
+
+    // Approximate number of pixels in each band; a band uses 12 bytes per pixel
+    private static final int BAND_PIXELS = 4 << 20 ;
+
+    private final int width ;
+    private final int height ;
+    private final int bandRows ;
+    private final BandFactory bandFactory ;
+    // bands are disposed once written, so the next band but one reuses their buffers:
+    private final FrameBufferPool bufferPool = new FrameBufferPool(2);
+    private ColoringMode coloringMode = ColoringMode.BANDED ;
+
+    private long computeNanos ;
+    private long encodeNanos ;
+    private int bandCount ;
+
+    public StreamingRenderer(int width, int height, BandFactory bandFactory) {
+        this.width = width ;
+        this.height = height ;
+        this.bandFactory = bandFactory ;
+        // whole rows of tiles, at least one, so that bands divide into full tiles:
+        int rows = Math.max(1, BAND_PIXELS / width / FractalView.TILE_SIZE) * FractalView.TILE_SIZE ;
+        this.bandRows = Math.min(rows, height);
+    }
+
+    public int getBandRows() {
+        return bandRows;
+    }
+
+    public ColoringMode getColoringMode() {
+        return coloringMode;
+    }
+
+    public void setColoringMode(ColoringMode coloringMode) {
+        if (coloringMode == ColoringMode.HISTOGRAM) {
+            throw new IllegalArgumentException("Histogram coloring needs the whole image, so cannot be streamed");
+        }
+        this.coloringMode = coloringMode;
+    }
+
+    /**
+     * @return The total time spent computing bands by the last call to {@link #render}
+     */
+    public long getComputeNanos() {
+        return computeNanos;
+    }
+
+    /**
+     * @return The total time spent encoding and writing bands by the last call to {@link #render}
+     */
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    public int getBandCount() {
+        return bandCount;
+    }
+
+    /**
+     * Render the image as a PNG to the given stream, which is closed when the image is
+     * complete. This method blocks until the whole image has been written.
+     */
+    public void render(OutputStream out, ForkJoinPool computePool, int parallelizationLevel) throws IOException {
+        computeNanos = 0 ;
+        encodeNanos = 0 ;
+        bandCount = 0 ;
+
+        try (PngStreamWriter png = new PngStreamWriter(out, width, height)) {
+            CompletableFuture<FractalView> next = computeBand(0, computePool, parallelizationLevel);
+            for (int y = 0; y < height; y += bandRows) {
+                final FractalView band = join(next);
+                next = y + bandRows < height
+                        ? computeBand(y + bandRows, computePool, parallelizationLevel)
+                        : null ;
+
+                long start = System.nanoTime();
+                png.writeRows(band.getPixels(), 0, band.getHeight());
+                band.dispose();
+                encodeNanos += System.nanoTime() - start ;
+                bandCount++ ;
+            }
+        }
+    }
+
+    private CompletableFuture<FractalView> computeBand(int y, ForkJoinPool computePool, int parallelizationLevel) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            FractalView band = bandFactory.createBand(y, Math.min(bandRows, height - y));
+            band.setRenderMode(RenderMode.STANDARD);
+            band.setColoringMode(coloringMode);
+            band.setBufferPool(bufferPool);
+            band.compute(computePool, parallelizationLevel);
+            // bands are computed one at a time, and joined before these totals are read:
+            computeNanos += System.nanoTime() - start ;
+            return band ;
+        }, computePool);
+    }
+
+    private static FractalView join(CompletableFuture<FractalView> band) throws IOException {
+        try {
+            return band.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            if (exc.getCause() instanceof Error) {
+                throw (Error) exc.getCause();
+            }
+            throw new IOException(exc.getCause());
+        }
+    }
+}
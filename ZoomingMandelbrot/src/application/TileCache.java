@@ -0,0 +1,296 @@
+package application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of computed tiles, shared between views, so that returning to a region which
+ * has already been seen does not recompute it.
+ * <p>
+ * Tiles are arranged in a quadtree pyramid. At level <i>L</i> the pixel spacing is
+ * <code>2<sup>-L</sup></code> times the spacing at level 0, and the plane is divided into
+ * square tiles of {@link FractalView#TILE_SIZE} pixels, indexed by their position in that
+ * grid; each tile at level <i>L</i> covers the same region as four tiles at level
+ * <i>L</i>+1. Pixel <i>i</i> of level <i>L</i> is pixel 2<i>i</i> of level <i>L</i>+1, so
+ * a missing tile can be assembled from its four children, and a quarter of its pixels
+ * can be taken from its parent. A tile is identified by its level and indices, together
+ * with the iteration level, kernel and render mode it was computed with, since these
+ * change its contents.
+ * <p>
+ * The cache holds tiles up to a memory budget, evicting the least recently used tile
+ * when it is exceeded. It may be backed by a {@link TileStore}, which is consulted on a
+ * miss and receives every newly computed tile, so that tiles persist between sessions.
+ * This class is thread safe.
+ */
+public class TileCache {
+
+    // Bytes used by the iteration counts and moduli of a single tile
+    private static final long TILE_BYTES = 8L * FractalView.TILE_SIZE * FractalView.TILE_SIZE ;
+
+    private final long capacityBytes ;
+    private final Map<Key, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private volatile TileStore store ;
+
+    /**
+     * @param capacityBytes Memory budget for cached tiles, in bytes
+     */
+    public TileCache(long capacityBytes) {
+        this.capacityBytes = capacityBytes ;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public synchronized long getSizeBytes() {
+        return tiles.size() * TILE_BYTES ;
+    }
+
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of hits which were loaded from the backing store, rather than
+     * found in memory.
+     */
+    public long getStoreHitCount() {
+        return storeHits.sum();
+    }
+
+    public TileStore getStore() {
+        return store;
+    }
+
+    /**
+     * Back this cache with a persistent store, or null for none.
+     */
+    public void setStore(TileStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return The fraction of lookups which found their tile in the cache, or 0 if there
+     * have been no lookups.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total ;
+    }
+
+    public synchronized void clear() {
+        tiles.clear();
+    }
+
+    /**
+     * @return The cached tile, or one assembled from its four cached children, or null if
+     * neither is available.
+     */
+    Tile get(Key key) {
+        Tile tile = find(key);
+        if (tile == null) {
+            tile = assembleFromChildren(key);
+            if (tile != null) {
+                put(key, tile);
+            }
+        }
+        if (tile == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return tile ;
+    }
+
+    /**
+     * @return The cached parent of the tile, at the next coarser level, or null if it is
+     * not in the cache. Its pixel (<i>i</i>, <i>j</i>) is pixel (2<i>i</i>, 2<i>j</i>) of
+     * the region of four tiles at the level of the given key which it covers.
+     */
+    Tile getParent(Key key) {
+        return find(key.parent());
+    }
+
+    // looks in memory and then in the store, without counting a hit or miss
+    private Tile find(Key key) {
+        Tile tile ;
+        synchronized (this) {
+            tile = tiles.get(key);
+        }
+        final TileStore currentStore = store ;
+        if (tile == null && currentStore != null) {
+            tile = currentStore.read(key);
+            if (tile != null) {
+                storeHits.increment();
+                cache(key, tile);
+            }
+        }
+        return tile ;
+    }
+
+    private Tile assembleFromChildren(Key key) {
+        final int size = FractalView.TILE_SIZE ;
+        final int half = size / 2 ;
+        Tile[] children = new Tile[4];
+        for (int child = 0; child < 4; child++) {
+            children[child] = find(key.child(child % 2, child / 2));
+            if (children[child] == null) {
+                return null ;
+            }
+        }
+        int[] counts = new int[size * size];
+        float[] moduli = new float[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Tile child = children[(y / half) * 2 + x / half];
+                int childIndex = 2 * (y % half) * size + 2 * (x % half);
+                counts[y * size + x] = child.iterationCounts[childIndex];
+                moduli[y * size + x] = child.finalModuli[childIndex];
+            }
+        }
+        return new Tile(counts, moduli);
+    }
+
+    void put(Key key, Tile tile) {
+        cache(key, tile);
+        final TileStore currentStore = store ;
+        if (currentStore != null) {
+            currentStore.write(key, tile);
+        }
+    }
+
+    private synchronized void cache(Key key, Tile tile) {
+        tiles.put(key, tile);
+        Iterator<Tile> eldest = tiles.values().iterator();
+        while (tiles.size() * TILE_BYTES > capacityBytes && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * The iteration counts and final squared moduli of a tile, in row-major order.
+     * Tiles are not modified once they have been cached.
+     */
+    static final class Tile {
+        final int[] iterationCounts ;
+        final float[] finalModuli ;
+
+        Tile(int[] iterationCounts, float[] finalModuli) {
+            this.iterationCounts = iterationCounts ;
+            this.finalModuli = finalModuli ;
+        }
+    }
+
+    static final class Key {
+
+        // Changed whenever the kernels change the iteration counts or moduli they compute,
+        // so that tiles persisted by an earlier version are not used
+        private static final int VERSION = 2 ;
+
+        private final Class<?> kernel ;
+        private final RenderMode renderMode ;
+        private final int level ;
+        private final int maxIterations ;
+        private final BigInteger tileX ;
+        private final BigInteger tileY ;
+
+        /**
+         * @param renderMode STANDARD for exactly computed tiles, or the approximate mode
+         * the tile was computed with
+         */
+        Key(Class<?> kernel, RenderMode renderMode, int level, int maxIterations,
+                BigInteger tileX, BigInteger tileY) {
+            this.kernel = kernel ;
+            this.renderMode = renderMode ;
+            this.level = level ;
+            this.maxIterations = maxIterations ;
+            this.tileX = tileX ;
+            this.tileY = tileY ;
+        }
+
+        BigInteger getTileX() {
+            return tileX;
+        }
+
+        BigInteger getTileY() {
+            return tileY;
+        }
+
+        Key parent() {
+            // shiftRight rounds towards negative infinity, as the tile grid requires
+            return new Key(kernel, renderMode, level - 1, maxIterations, tileX.shiftRight(1), tileY.shiftRight(1));
+        }
+
+        // dx and dy are 0 or 1
+        Key child(int dx, int dy) {
+            return new Key(kernel, renderMode, level + 1, maxIterations,
+                    tileX.shiftLeft(1).add(BigInteger.valueOf(dx)), tileY.shiftLeft(1).add(BigInteger.valueOf(dy)));
+        }
+
+        /**
+         * @return A serialized form of this key which is stable between sessions.
+         */
+        byte[] toBytes() {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(VERSION);
+                out.writeUTF(kernel.getName());
+                out.writeUTF(renderMode.name());
+                out.writeInt(level);
+                out.writeInt(maxIterations);
+                byte[] x = tileX.toByteArray();
+                out.writeInt(x.length);
+                out.write(x);
+                byte[] y = tileY.toByteArray();
+                out.writeInt(y.length);
+                out.write(y);
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException exc) {
+                // cannot happen writing to a byte array
+                throw new UncheckedIOException(exc);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true ;
+            }
+            if (! (o instanceof Key)) {
+                return false ;
+            }
+            Key other = (Key) o ;
+            return level == other.level && maxIterations == other.maxIterations
+                    && kernel == other.kernel && renderMode == other.renderMode
+                    && tileX.equals(other.tileX) && tileY.equals(other.tileY);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kernel, renderMode, level, maxIterations, tileX, tileY);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent store of computed tiles, kept in memory-mapped files so that tiles survive
+ * between sessions.
+ * <p>
+ * The store has a fixed number of slots, each holding one tile, in a data file. A compact
+ * index file records, for each slot, a 128 bit digest of the key of the tile it holds and
+ * when the tile was last used. Keys include a version number, so tiles computed by an
+ * earlier version of the kernels are never found. The index is read into memory when the
+ * store is opened; when all slots are full, the least recently used tile is evicted.
+ * Both files are mapped into memory, so tiles are read and written by copying directly
+ * between the mapping and the tile arrays, without system calls or intermediate
+ * buffers. Reading a tile is still a copy, since tiles are held in arrays.
+ * <p>
+ * This class is thread safe. Reads and writes take no lock while copying: each slot has
+ * a generation, which changes when the slot is given to another tile, and a read whose
+ * slot changed generation while it was copying is discarded as a miss.
+ */
+public class TileStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x4d544c53 ; // "MTLS"
+    private static final int VERSION = 1 ;
+
+    private static final int TILE_PIXELS = FractalView.TILE_SIZE * FractalView.TILE_SIZE ;
+    private static final int TILE_BYTES = 8 * TILE_PIXELS ;
+
+    // magic, version, tile size and slot count, then a record per slot:
+    private static final int INDEX_HEADER_BYTES = 16 ;
+    // key digest (two longs) and last use (a long, zero if the slot is empty):
+    private static final int INDEX_RECORD_BYTES = 24 ;
+
+    private final FileChannel indexChannel ;
+    private final FileChannel dataChannel ;
+    private final MappedByteBuffer index ;
+    private final MappedByteBuffer data ;
+    private final int slots ;
+
+    // Occupied slots by key digest, in order of use; guarded by this
+    private final Map<Digest, Integer> slotsByDigest = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Integer> freeSlots = new ArrayList<>();
+    // Digests of the tiles being written, so that only one thread writes each; guarded by this
+    private final Set<Digest> pendingDigests = new HashSet<>();
+    // Guarded by this
+    private final int[] slotGenerations ;
+    private long useCounter ;
+
+    /**
+     * Open the store in the given directory, creating it if necessary. If the directory
+     * holds a store with a different capacity or tile size, it is discarded.
+     * @param capacityBytes The maximum size of the tile data, in bytes
+     */
+    public TileStore(Path directory, long capacityBytes) throws IOException {
+        this.slots = (int) Math.min(Integer.MAX_VALUE / TILE_BYTES, Math.max(1, capacityBytes / TILE_BYTES));
+        this.slotGenerations = new int[slots];
+        Files.createDirectories(directory);
+        indexChannel = FileChannel.open(directory.resolve("tiles.idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataChannel = FileChannel.open(directory.resolve("tiles.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    INDEX_HEADER_BYTES + (long) slots * INDEX_RECORD_BYTES);
+            data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slots * TILE_BYTES);
+        } catch (IOException exc) {
+            indexChannel.close();
+            dataChannel.close();
+            throw exc ;
+        }
+        loadIndex();
+    }
+
+    private void loadIndex() {
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION
+                || index.getInt(8) != FractalView.TILE_SIZE || index.getInt(12) != slots) {
+            for (int i = 0; i < index.capacity(); i++) {
+                index.put(i, (byte) 0);
+            }
+            index.putInt(0, MAGIC);
+            index.putInt(4, VERSION);
+            index.putInt(8, FractalView.TILE_SIZE);
+            index.putInt(12, slots);
+        }
+
+        // insert occupied slots in order of last use, so the map's order is the same:
+        List<long[]> used = new ArrayList<>();
+        for (int slot = 0; slot < slots; slot++) {
+            long lastUse = index.getLong(recordOffset(slot) + 16);
+            if (lastUse == 0) {
+                freeSlots.add(slot);
+            } else {
+                used.add(new long[] {lastUse, slot});
+                useCounter = Math.max(useCounter, lastUse);
+            }
+        }
+        used.sort((a, b) -> Long.compare(a[0], b[0]));
+        for (long[] entry : used) {
+            int slot = (int) entry[1];
+            int offset = recordOffset(slot);
+            slotsByDigest.put(new Digest(index.getLong(offset), index.getLong(offset + 8)), slot);
+        }
+    }
+
+    public int getCapacity() {
+        return slots;
+    }
+
+    public synchronized int getTileCount() {
+        return slotsByDigest.size();
+    }
+
+    /**
+     * @return The stored tile, or null if it is not in the store.
+     */
+    TileCache.Tile read(TileCache.Key key) {
+        final Digest digest = Digest.of(key);
+        final int slot ;
+        final int generation ;
+        synchronized (this) {
+            Integer stored = slotsByDigest.get(digest);
+            if (stored == null) {
+                return null ;
+            }
+            slot = stored ;
+            generation = slotGenerations[slot];
+            index.putLong(recordOffset(slot) + 16, ++useCounter);
+        }
+
+        final int[] counts = new int[TILE_PIXELS];
+        final float[] moduli = new float[TILE_PIXELS];
+        ByteBuffer tile = data.duplicate();
+        tile.position(slot * TILE_BYTES);
+        tile.asIntBuffer().get(counts);
+        tile.position(slot * TILE_BYTES + 4 * TILE_PIXELS);
+        tile.asFloatBuffer().get(moduli);
+
+        synchronized (this) {
+            // the slot may have been given to another tile while it was being copied:
+            if (slotGenerations[slot] != generation) {
+                return null ;
+            }
+        }
+        return new TileCache.Tile(counts, moduli);
+    }
+
+    void write(TileCache.Key key, TileCache.Tile tile) {
+        final Digest digest = Digest.of(key);
+        final int slot ;
+        synchronized (this) {
+            if (slotsByDigest.containsKey(digest) || ! pendingDigests.add(digest)) {
+                return ;
+            }
+            if (freeSlots.isEmpty()) {
+                Iterator<Integer> eldest = slotsByDigest.values().iterator();
+                freeSlots.add(eldest.next());
+                eldest.remove();
+            }
+            slot = freeSlots.remove(freeSlots.size() - 1);
+            slotGenerations[slot]++ ;
+            // mark the slot empty until the tile is written, in case we are interrupted:
+            index.putLong(recordOffset(slot) + 16, 0);
+        }
+
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(slot * TILE_BYTES);
+        buffer.asIntBuffer().put(tile.iterationCounts);
+        buffer.position(slot * TILE_BYTES + 4 * TILE_PIXELS);
+        buffer.asFloatBuffer().put(tile.finalModuli);
+
+        synchronized (this) {
+            int offset = recordOffset(slot);
+            index.putLong(offset, digest.high);
+            index.putLong(offset + 8, digest.low);
+            index.putLong(offset + 16, ++useCounter);
+            slotsByDigest.put(digest, slot);
+            pendingDigests.remove(digest);
+        }
+    }
+
+    private static int recordOffset(int slot) {
+        return INDEX_HEADER_BYTES + slot * INDEX_RECORD_BYTES ;
+    }
+
+    /**
+     * Flush the store to disk and close it. Tiles still being written may not be flushed,
+     * so the threads which write tiles should be stopped first.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        data.force();
+        index.force();
+        dataChannel.close();
+        indexChannel.close();
+    }
+
+    private static final class Digest {
+        final long high ;
+        final long low ;
+
+        Digest(long high, long low) {
+            this.high = high ;
+            this.low = low ;
+        }
+
+        static Digest of(TileCache.Key key) {
+            try {
+                byte[] hash = MessageDigest.getInstance("MD5").digest(key.toBytes());
+                ByteBuffer buffer = ByteBuffer.wrap(hash);
+                return new Digest(buffer.getLong(), buffer.getLong());
+            } catch (NoSuchAlgorithmException exc) {
+                // every Java platform is required to support MD5
+                throw new IllegalStateException(exc);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (! (o instanceof Digest)) {
+                return false ;
+            }
+            Digest other = (Digest) o ;
+            return high == other.high && low == other.low ;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high ^ low);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package application;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Three pixel buffers shared by one thread which writes frames and one which reads them,
+ * so that neither ever waits for the other and the reader never sees a frame which is
+ * still being written.
+ * <p>
+ * The writer fills the back buffer and publishes it, exchanging it with the middle
+ * buffer. The reader takes the middle buffer, if a frame has been published since it
+ * last looked, exchanging it with the front buffer, which it may then read at leisure.
+ * Both exchanges are a single atomic operation on the index of the middle buffer.
+ * <p>
+ * Buffers are allocated when they are first written, so a view which is colored only
+ * once, as in batch rendering, uses a single buffer.
+ */
+final class TripleBuffer {
+
+    // set in the middle index when it holds a frame the reader has not yet taken
+    private static final int FRESH = 4 ;
+    private static final int INDEX = 3 ;
+
+    private final int size ;
+    private final int[][] buffers = new int[3][];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0 ;
+    private int front = 2 ;
+
+    TripleBuffer(int size) {
+        this.size = size ;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Called by the writer.
+     * @return The buffer into which the next frame is to be written
+     */
+    int[] back() {
+        if (buffers[back] == null) {
+            buffers[back] = new int[size];
+        }
+        return buffers[back];
+    }
+
+    /**
+     * Called by the writer when the back buffer holds a complete frame.
+     */
+    void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX ;
+    }
+
+    /**
+     * Called by the reader.
+     * @return The most recently published frame, or an empty frame if none has been
+     * published
+     */
+    int[] front() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX ;
+        }
+        if (buffers[front] == null) {
+            buffers[front] = new int[size];
+        }
+        return buffers[front];
+    }
+}
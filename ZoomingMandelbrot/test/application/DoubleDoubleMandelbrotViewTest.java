@@ -0,0 +1,43 @@
+package application;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class DoubleDoubleMandelbrotViewTest {
+
+    private static final int SIZE = 250 ;
+    // few enough that the orbits of points near the boundary do not come apart by rounding
+    private static final int MAX_ITERATIONS = 100 ;
+
+    // a view extending well outside radius 2, at a zoom where doubles are exact enough
+    private static final BigDecimal CENTER_X = new BigDecimal("-0.5");
+    private static final BigDecimal CENTER_Y = BigDecimal.ZERO ;
+    private static final double VIEW_SIZE = 6.1 ;
+
+    @Test
+    public void matchesScalarKernelAtShallowZoom() {
+        final ForkJoinPool exec = ForkJoinPool.commonPool();
+        final FractalView scalar = new MandelbrotView(SIZE, SIZE, CENTER_X, CENTER_Y, VIEW_SIZE, VIEW_SIZE, MAX_ITERATIONS);
+        final FractalView doubleDouble = new DoubleDoubleMandelbrotView(SIZE, SIZE, CENTER_X, CENTER_Y,
+                VIEW_SIZE, VIEW_SIZE, MAX_ITERATIONS);
+        scalar.compute(exec, 2);
+        doubleDouble.compute(exec, 2);
+
+        final int[] counts = doubleDouble.getIterationCounts();
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                double cx = CENTER_X.doubleValue() + (x - SIZE / 2.0) * VIEW_SIZE / SIZE ;
+                double cy = (SIZE / 2.0 - y) * VIEW_SIZE / SIZE ;
+                if (cx * cx + cy * cy > 4.01) {
+                    assertEquals("pixel (" + x + ", " + y + ")", 0, counts[y * SIZE + x]);
+                }
+            }
+        }
+        assertArrayEquals(scalar.getIterationCounts(), counts);
+    }
+}
@@ -0,0 +1,56 @@
+package application;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class FractalViewTileCacheTest {
+
+    private static final int SIZE = 256 ;
+    private static final int MAX_ITERATIONS = 500 ;
+
+    // 64 pixels to the unit, so every pixel lies on the grid of the cache
+    private static final BigDecimal CENTER_X = new BigDecimal("-0.75");
+    private static final BigDecimal CENTER_Y = BigDecimal.ZERO ;
+    private static final double VIEW_SIZE = 4.0 ;
+    private static final BigInteger ORIGIN_X = BigInteger.valueOf(-48 - SIZE / 2);
+    private static final BigInteger ORIGIN_Y = BigInteger.valueOf(-SIZE / 2);
+
+    private static FractalView createView(RenderMode renderMode, TileCache cache) {
+        FractalView view = new LaneMandelbrotView(SIZE, SIZE, CENTER_X, CENTER_Y, VIEW_SIZE, VIEW_SIZE, MAX_ITERATIONS);
+        view.setRenderMode(renderMode);
+        if (cache != null) {
+            view.setTileCache(cache, 0, ORIGIN_X, ORIGIN_Y);
+        }
+        return view ;
+    }
+
+    @Test
+    public void cachedProgressiveViewPublishesPartialPasses() {
+        final ForkJoinPool exec = ForkJoinPool.commonPool();
+        final FractalView expected = createView(RenderMode.STANDARD, null);
+        expected.compute(exec, 2);
+
+        final TileCache cache = new TileCache(16L << 20);
+        final AtomicInteger passes = new AtomicInteger();
+        final FractalView missing = createView(RenderMode.PROGRESSIVE, cache);
+        missing.setOnPassCompleted(passes::incrementAndGet);
+        missing.compute(exec, 2);
+        assertEquals(3, passes.get());
+        assertArrayEquals(expected.getIterationCounts(), missing.getIterationCounts());
+
+        // once the tiles are cached there is nothing to show before the finished image
+        passes.set(0);
+        final FractalView cached = createView(RenderMode.PROGRESSIVE, cache);
+        cached.setOnPassCompleted(passes::incrementAndGet);
+        cached.compute(exec, 2);
+        assertEquals(0, passes.get());
+        assertArrayEquals(expected.getIterationCounts(), cached.getIterationCounts());
+    }
+}